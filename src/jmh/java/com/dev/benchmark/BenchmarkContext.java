@@ -0,0 +1,28 @@
+package com.dev.benchmark;
+
+import com.dev.FoodDeliveryJavaApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+//khởi động app trên H2 (profile benchmark) cho các benchmark cần service thật
+public class BenchmarkContext {
+
+    //args dạng --key=value, ghi đè cấu hình trong yml (vd --spring.jpa.properties.hibernate.jdbc.batch_size=1)
+    public static ConfigurableApplicationContext start(String... args) {
+        return new SpringApplicationBuilder(FoodDeliveryJavaApplication.class)
+                .profiles("benchmark")
+                .run(args);
+    }
+
+    //mọi thread benchmark dùng chung 1 user, giống nhiều thiết bị của cùng 1 tài khoản
+    public static void loginAs(String email, String role) {
+        SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                email, null, List.of(new SimpleGrantedAuthority(role))));
+    }
+}
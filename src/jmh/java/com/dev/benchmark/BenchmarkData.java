@@ -0,0 +1,129 @@
+package com.dev.benchmark;
+
+import com.dev.enums.RoleEnum;
+import com.dev.models.*;
+import com.dev.repository.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Seed dữ liệu H2 cho benchmark, kích thước chỉnh bằng @Param (vd -p restaurants=100 -p foodsPerRestaurant=200).
+ * Mỗi nhà hàng: 1 nhóm "Size" chọn 1 (pick) + 1 nhóm "Topping" chọn nhiều, mọi món đều gắn các ingredient đó.
+ * Dữ liệu benchmark dùng là của nhà hàng đầu tiên, các nhà hàng còn lại để bảng có kích thước thật.
+ */
+public class BenchmarkData {
+
+    public static final String OWNER_EMAIL = "owner-0@bench.dev";
+    public static final String CUSTOMER_EMAIL = "customer@bench.dev";
+    private static final int SIZES = 3;
+
+    public final List<Long> foodIds = new ArrayList<>();
+    public final List<Long> sizeIds = new ArrayList<>();
+    public final List<Long> toppingIds = new ArrayList<>();
+    public Long restaurantId;
+    public Long addressId;
+
+    public static BenchmarkData seed(
+            ConfigurableApplicationContext context,
+            int restaurants,
+            int foodsPerRestaurant,
+            int toppingsPerRestaurant
+    ) {
+        BenchmarkData data = new BenchmarkData();
+        context.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+            for (int r = 0; r < restaurants; r++) {
+                data.seedRestaurant(context, r, foodsPerRestaurant, toppingsPerRestaurant);
+            }
+            data.seedCustomer(context);
+        });
+        return data;
+    }
+
+    private void seedRestaurant(ConfigurableApplicationContext context, int index, int foods, int toppings) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        RestaurantRepository restaurantRepository = context.getBean(RestaurantRepository.class);
+        CategoryIngredientRepository categoryIngredientRepository = context.getBean(CategoryIngredientRepository.class);
+        FoodRepository foodRepository = context.getBean(FoodRepository.class);
+
+        User owner = new User();
+        owner.setEmail("owner-" + index + "@bench.dev");
+        owner.setFullName("Owner " + index);
+        owner.setRole(RoleEnum.ROLE_RESTAURANT);
+        owner = userRepository.save(owner);
+        Restaurant restaurant = restaurantRepository.save(Restaurant.builder()
+                .owner(owner)
+                .name("Restaurant " + index)
+                .likes(0L)
+                .createdAt(new Date())
+                .build());
+
+        CategoryIngredient size = categoryIngredient(restaurant, "Size", true, SIZES);
+        CategoryIngredient topping = categoryIngredient(restaurant, "Topping", false, toppings);
+        categoryIngredientRepository.save(size);
+        categoryIngredientRepository.save(topping);
+        Set<IngredientItem> ingredients = new HashSet<>(size.getIngredients());
+        ingredients.addAll(topping.getIngredients());
+
+        for (int f = 0; f < foods; f++) {
+            Food food = foodRepository.save(Food.builder()
+                    .name("Food " + index + "-" + f)
+                    .price(30000L + f * 1000L)
+                    .available(true)
+                    .restaurant(restaurant)
+                    .images(new HashSet<>(Set.of("https://img.bench.dev/" + index + "/" + f + ".jpg")))
+                    .ingredients(new HashSet<>(ingredients))
+                    .createdAt(new Date())
+                    .build());
+            if(index == 0) {
+                foodIds.add(food.getId());
+            }
+        }
+        if(index == 0) {
+            restaurantId = restaurant.getId();
+            size.getIngredients().forEach(ingredient -> sizeIds.add(ingredient.getId()));
+            topping.getIngredients().forEach(ingredient -> toppingIds.add(ingredient.getId()));
+        }
+    }
+
+    private CategoryIngredient categoryIngredient(Restaurant restaurant, String name, boolean pick, int items) {
+        CategoryIngredient category = CategoryIngredient.builder()
+                .name(name)
+                .restaurant(restaurant)
+                .pick(pick)
+                .ingredients(new HashSet<>())
+                .build();
+        for (int i = 0; i < items; i++) {
+            category.addIngredient(IngredientItem.builder()
+                    .name(name + " " + i)
+                    .price(5000L * (i + 1))
+                    .isStock(true)
+                    .build());
+        }
+        return category;
+    }
+
+    private void seedCustomer(ConfigurableApplicationContext context) {
+        User customer = new User();
+        customer.setEmail(CUSTOMER_EMAIL);
+        customer.setFullName("Customer");
+        customer.setRole(RoleEnum.ROLE_USER);
+        customer = context.getBean(UserRepository.class).save(customer);
+        context.getBean(CartRepository.class).save(Cart.builder().customer(customer).totalPrice(0L).build());
+
+        Address address = new Address();
+        address.setCustomer(customer);
+        address.setNumberStreet("1");
+        address.setStreet("Le Loi");
+        address.setDistrict("1");
+        address.setCity("HCM");
+        address.setCustomerPhone("0900000000");
+        address.setCustomerDefault(true);
+        addressId = context.getBean(AddressRepository.class).save(address).getId();
+    }
+}
@@ -0,0 +1,129 @@
+package com.dev.benchmark;
+
+import com.dev.cache.CartStore;
+import com.dev.dto.request.AddCartItemRequest;
+import com.dev.dto.request.UpdateQuantityCartItemRequest;
+import com.dev.dto.response.UpdateCartItemResponse;
+import com.dev.enums.RoleEnum;
+import com.dev.models.Cart;
+import com.dev.models.Food;
+import com.dev.models.Restaurant;
+import com.dev.models.User;
+import com.dev.repository.CartRepository;
+import com.dev.repository.FoodRepository;
+import com.dev.repository.RestaurantRepository;
+import com.dev.repository.UserRepository;
+import com.dev.service.CartService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Nhiều thread cùng sửa cart của 1 user. So sánh throughput 1 thread và 8 thread,
+ * và chi phí ghi cart xuống DB (updateAndFlush), với từng loại CartStore
+ * (database: ghi + row lock mỗi lần sửa, memory: write-behind).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CartConcurrencyBenchmark {
+
+    private static final String EMAIL = "cart-bench@example.com";
+
+    @Param({"database", "memory"})
+    String storeType;
+
+    ConfigurableApplicationContext context;
+    CartService cartService;
+    CartStore cartStore;
+    Long foodId;
+    Long cartItemId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("--cart.store.type=" + storeType);
+        context.getBean(TransactionTemplate.class).executeWithoutResult(status -> seed());
+
+        BenchmarkContext.loginAs(EMAIL, RoleEnum.ROLE_USER.name());
+        cartService = context.getBean(CartService.class);
+        cartService.addCartItem(new AddCartItemRequest(1, foodId, null, List.of()));
+        cartStore = context.getBean(CartStore.class);
+        cartItemId = cartService.getAllItemInCart().getItems().get(0).getId();
+    }
+
+    private void seed() {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        RestaurantRepository restaurantRepository = context.getBean(RestaurantRepository.class);
+        FoodRepository foodRepository = context.getBean(FoodRepository.class);
+
+        User owner = new User();
+        owner.setEmail("owner-bench@example.com");
+        owner.setFullName("Owner");
+        owner.setRole(RoleEnum.ROLE_RESTAURANT);
+        owner = userRepository.save(owner);
+        Restaurant restaurant = restaurantRepository.save(Restaurant.builder()
+                .owner(owner)
+                .name("Bench")
+                .likes(0L)
+                .createdAt(new Date())
+                .build());
+        foodId = foodRepository.save(Food.builder()
+                .name("Pho bo")
+                .price(50000L)
+                .available(true)
+                .restaurant(restaurant)
+                .createdAt(new Date())
+                .build()).getId();
+
+        User customer = new User();
+        customer.setEmail(EMAIL);
+        customer.setFullName("Customer");
+        customer.setRole(RoleEnum.ROLE_USER);
+        customer = userRepository.save(customer);
+        context.getBean(CartRepository.class).save(Cart.builder().customer(customer).totalPrice(0L).build());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public UpdateCartItemResponse updateQuantitySingleWriter() {
+        return updateQuantity();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public UpdateCartItemResponse updateQuantityParallelWriters() {
+        return updateQuantity();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void addSameFoodParallelWriters() {
+        cartService.addCartItem(new AddCartItemRequest(1, foodId, null, List.of()));
+    }
+
+    //ghi cart xuống DB, phần write-behind làm nền
+    @Benchmark
+    @Threads(1)
+    public void updateAndFlush() {
+        updateQuantity();
+        cartStore.flush();
+    }
+
+    private UpdateCartItemResponse updateQuantity() {
+        return cartService.updateCartItemQuantity(new UpdateQuantityCartItemRequest(
+                cartItemId, ThreadLocalRandom.current().nextInt(1, 10)));
+    }
+}
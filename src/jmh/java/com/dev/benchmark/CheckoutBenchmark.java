@@ -0,0 +1,94 @@
+package com.dev.benchmark;
+
+import com.dev.dto.request.AddCartItemRequest;
+import com.dev.dto.request.CreateOrderRequest;
+import com.dev.dto.response.OrderResponse;
+import com.dev.enums.PaymentEnum;
+import com.dev.enums.RoleEnum;
+import com.dev.service.CartService;
+import com.dev.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Checkout trên H2: addCartItem (lấy food, ingredient và kiểm tra pick/stock) và
+ * createOrder (tính giá từng dòng, insert order + order item).
+ * Kích thước dữ liệu: -p restaurants=.. -p foodsPerRestaurant=.. -p toppingsPerRestaurant=.. -p cartLines=..
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CheckoutBenchmark {
+
+    @Param("10")
+    int restaurants;
+
+    @Param("50")
+    int foodsPerRestaurant;
+
+    @Param("8")
+    int toppingsPerRestaurant;
+
+    @Param("5")
+    int cartLines;
+
+    ConfigurableApplicationContext context;
+    CartService cartService;
+    OrderService orderService;
+    BenchmarkData data;
+    CreateOrderRequest orderRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        data = BenchmarkData.seed(context, restaurants, foodsPerRestaurant, toppingsPerRestaurant);
+        BenchmarkContext.loginAs(BenchmarkData.CUSTOMER_EMAIL, RoleEnum.ROLE_USER.name());
+        cartService = context.getBean(CartService.class);
+        orderService = context.getBean(OrderService.class);
+        orderRequest = new CreateOrderRequest(data.restaurantId, data.addressId, PaymentEnum.HOME);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //dòng thứ line của cart: 1 size (nhóm pick) + 2 topping, cart không bao giờ quá cartLines dòng
+    AddCartItemRequest cartItem(int line) {
+        Long foodId = data.foodIds.get(line % data.foodIds.size());
+        List<Long> ingredientIds = List.of(
+                data.sizeIds.get(line % data.sizeIds.size()),
+                data.toppingIds.get(0),
+                data.toppingIds.get(1 + line % (data.toppingIds.size() - 1)));
+        return new AddCartItemRequest(1, foodId, null, ingredientIds);
+    }
+
+    @Benchmark
+    public void addCartItem() {
+        cartService.addCartItem(cartItem(ThreadLocalRandom.current().nextInt(cartLines)));
+    }
+
+    @Benchmark
+    public OrderResponse createOrder(FilledCart cart) {
+        return orderService.createOrder(orderRequest, null);
+    }
+
+    //mỗi lần createOrder cần cart có cartLines dòng, phần đổ cart không tính vào thời gian
+    @State(Scope.Thread)
+    public static class FilledCart {
+        @Setup(Level.Invocation)
+        public void fill(CheckoutBenchmark benchmark) {
+            benchmark.cartService.clearCart();
+            for (int i = 0; i < benchmark.cartLines; i++) {
+                benchmark.cartService.addCartItem(benchmark.cartItem(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.dev.benchmark;
+
+import com.dev.service.RestaurantGeoIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * RestaurantGeoIndex.nearby không cần Spring: index được nạp trực tiếp bằng put.
+ * Nhà hàng rải đều trong vùng spreadKm x spreadKm quanh trung tâm HCM, điểm query ngẫu nhiên trong cùng vùng.
+ * Kích thước: -p restaurants=.. -p spreadKm=.. -p radiusKm=.. -p page=..
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeoIndexBenchmark {
+
+    private static final double CENTER_LAT = 10.7769;
+    private static final double CENTER_LON = 106.7009;
+    private static final double KM_PER_DEGREE = 111.195;
+
+    @Param("100000")
+    int restaurants;
+
+    @Param("40")
+    double spreadKm;
+
+    @Param({"3", "10"})
+    double radiusKm;
+
+    @Param({"1", "20"})
+    int page;
+
+    RestaurantGeoIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new RestaurantGeoIndex(null, 0.05, 20, 1000);
+        Random random = new Random(42);
+        for (long id = 1; id <= restaurants; id++) {
+            index.put(id, latitude(random.nextDouble()), longitude(random.nextDouble()));
+        }
+    }
+
+    @Benchmark
+    public RestaurantGeoIndex.Result nearby() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return index.nearby(latitude(random.nextDouble()), longitude(random.nextDouble()), radiusKm, (page - 1) * 10, 10);
+    }
+
+    double latitude(double fraction) {
+        return CENTER_LAT + (fraction - 0.5) * spreadKm / KM_PER_DEGREE;
+    }
+
+    double longitude(double fraction) {
+        return CENTER_LON + (fraction - 0.5) * spreadKm / (KM_PER_DEGREE * Math.cos(Math.toRadians(CENTER_LAT)));
+    }
+}
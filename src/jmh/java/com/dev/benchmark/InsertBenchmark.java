@@ -0,0 +1,101 @@
+package com.dev.benchmark;
+
+import com.dev.enums.OrderStatus;
+import com.dev.enums.PaymentEnum;
+import com.dev.models.*;
+import com.dev.repository.OrderRepository;
+import com.dev.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Ghi order + order item trong 1 transaction giống createOrder, đo số transaction/giây.
+ * So sánh trước/sau JDBC batching: -p batchSize=1,50 (1 = mỗi dòng 1 câu INSERT như trước khi bật batch).
+ * Id lấy từ sequence pooled (allocationSize 50) nên không có round trip lấy id cho từng dòng.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsertBenchmark {
+
+    @Param("50")
+    int batchSize;
+
+    @Param("10")
+    int ordersPerTransaction;
+
+    @Param("5")
+    int itemsPerOrder;
+
+    ConfigurableApplicationContext context;
+    TransactionTemplate transactionTemplate;
+    EntityManager entityManager;
+    OrderRepository orderRepository;
+    BenchmarkData data;
+    Long customerId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize);
+        data = BenchmarkData.seed(context, 1, itemsPerOrder, 2);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        entityManager = context.getBean(EntityManager.class);
+        orderRepository = context.getBean(OrderRepository.class);
+        customerId = context.getBean(UserRepository.class).findByEmail(BenchmarkData.CUSTOMER_EMAIL).orElseThrow().getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int insertOrders() {
+        return transactionTemplate.execute(status -> {
+            List<Order> orders = new ArrayList<>(ordersPerTransaction);
+            for (int o = 0; o < ordersPerTransaction; o++) {
+                orders.add(order());
+            }
+            orderRepository.saveAll(orders);
+            //flush trong transaction để INSERT nằm trong thời gian đo, clear để persistence context không phình
+            entityManager.flush();
+            entityManager.clear();
+            return orders.size();
+        });
+    }
+
+    private Order order() {
+        Order order = Order.builder()
+                .customer(entityManager.getReference(User.class, customerId))
+                .restaurant(entityManager.getReference(Restaurant.class, data.restaurantId))
+                .address(entityManager.getReference(Address.class, data.addressId))
+                .orderStatus(OrderStatus.PENDING)
+                .payment(PaymentEnum.HOME)
+                .createdAt(new Date())
+                .totalItem(itemsPerOrder)
+                .totalPrice(0L)
+                .orderItems(new HashSet<>())
+                .build();
+        for (int i = 0; i < itemsPerOrder; i++) {
+            order.getOrderItems().add(OrderItem.builder()
+                    .order(order)
+                    .food(entityManager.getReference(Food.class, data.foodIds.get(i % data.foodIds.size())))
+                    .quantity(1)
+                    .totalPrice(30000L)
+                    .ingredients(new HashSet<>())
+                    .build());
+        }
+        return order;
+    }
+}
@@ -0,0 +1,111 @@
+package com.dev.benchmark;
+
+import com.dev.dto.response.FoodOptimizeResponse;
+import com.dev.dto.response.FoodResponse;
+import com.dev.dto.response.IngredientItemResponse;
+import com.dev.dto.response.OrderItemResponse;
+import com.dev.dto.response.OrderResponse;
+import com.dev.enums.OrderStatus;
+import com.dev.enums.PaymentEnum;
+import com.dev.mapper.*;
+import com.dev.models.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * MapStruct mapper dùng trên đường trả order/food, không cần Spring: các Impl được generate
+ * với componentModel spring nhưng không inject gì nên new trực tiếp được.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    @Param("5")
+    int itemsPerOrder;
+
+    @Param("3")
+    int ingredientsPerItem;
+
+    final OrderMapper orderMapper = new OrderMapperImpl();
+    final OrderItemMapper orderItemMapper = new OrderItemMapperImpl();
+    final IngredientItemMapper ingredientItemMapper = new IngredientItemMapperImpl();
+    final FoodMapper foodMapper = new FoodMapperImpl();
+
+    Order order;
+    Food food;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        food = Food.builder()
+                .id(1L)
+                .name("Pho bo")
+                .description("Pho bo tai nam")
+                .price(50000L)
+                .available(true)
+                .images(new HashSet<>(Set.of("https://img.bench.dev/1.jpg", "https://img.bench.dev/2.jpg")))
+                .createdAt(new Date())
+                .build();
+
+        order = Order.builder()
+                .id(1L)
+                .orderStatus(OrderStatus.PENDING)
+                .payment(PaymentEnum.HOME)
+                .totalItem(itemsPerOrder)
+                .totalPrice(250000L)
+                .createdAt(new Date())
+                .orderItems(new HashSet<>())
+                .build();
+        for (int i = 0; i < itemsPerOrder; i++) {
+            Set<IngredientItem> ingredients = new HashSet<>();
+            for (int j = 0; j < ingredientsPerItem; j++) {
+                ingredients.add(IngredientItem.builder().id(i * 100L + j).name("Topping " + j).price(5000L).isStock(true).build());
+            }
+            order.getOrderItems().add(OrderItem.builder()
+                    .id((long) i)
+                    .order(order)
+                    .food(food)
+                    .quantity(2)
+                    .totalPrice(100000L)
+                    .ingredients(ingredients)
+                    .build());
+        }
+    }
+
+    //giống OrderService.createOrder: order + từng item + từng ingredient
+    @Benchmark
+    public OrderResponse orderToResponse() {
+        OrderResponse response = orderMapper.toOrderResponses(order);
+        List<OrderItemResponse> items = new ArrayList<>(order.getOrderItems().size());
+        for (OrderItem orderItem : order.getOrderItems()) {
+            OrderItemResponse itemResponse = orderItemMapper.toOrderItemResponse(orderItem);
+            List<IngredientItemResponse> ingredients = new ArrayList<>(orderItem.getIngredients().size());
+            for (IngredientItem ingredient : orderItem.getIngredients()) {
+                ingredients.add(ingredientItemMapper.toIngredientItemResponse(ingredient));
+            }
+            itemResponse.setIngredients(ingredients);
+            items.add(itemResponse);
+        }
+        response.setOrderItems(items);
+        return response;
+    }
+
+    @Benchmark
+    public FoodResponse foodToResponse() {
+        return foodMapper.toFoodResponse(food);
+    }
+
+    @Benchmark
+    public FoodOptimizeResponse foodToOptimizeResponse() {
+        return foodMapper.toFoodOptimizeResponse(food);
+    }
+}
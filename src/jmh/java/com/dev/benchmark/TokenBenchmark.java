@@ -0,0 +1,79 @@
+package com.dev.benchmark;
+
+import com.dev.config.CachingJwtDecoder;
+import com.dev.enums.RoleEnum;
+import com.dev.models.User;
+import com.dev.utils.AuthUtil;
+import com.dev.utils.VNPayUtil;
+import com.nimbusds.jwt.SignedJWT;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import java.util.concurrent.TimeUnit;
+
+//ký/kiểm tra JWT (HS512) của AuthUtil, decode access token như SecurityConfig và chữ ký HMAC-SHA512 gửi VNPay
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenBenchmark {
+
+    //HS512 cần key >= 64 byte
+    static final String SECRET = "benchmark-secret-key-benchmark-secret-key-benchmark-secret-key-0123456789";
+    static final String VNPAY_SECRET = "VNPAYBENCHMARKSECRETKEY0123456789";
+    static final String VNPAY_QUERY = "vnp_Amount=25000000&vnp_Command=pay&vnp_CreateDate=20261017120000"
+            + "&vnp_CurrCode=VND&vnp_ExpireDate=20261017121500&vnp_IpAddr=127.0.0.1&vnp_Locale=vn"
+            + "&vnp_OrderInfo=Thanh+toan+don+hang%3A12345678&vnp_OrderType=other"
+            + "&vnp_ReturnUrl=http%3A%2F%2Flocalhost%3A8080%2Fapi%2Fv1%2Fpayment%2Fvn-pay-callback"
+            + "&vnp_TmnCode=BENCH001&vnp_TxnRef=12345678&vnp_Version=2.1.0";
+
+    final AuthUtil authUtil = new AuthUtil();
+    User user;
+    String token;
+    NimbusJwtDecoder nimbusJwtDecoder;
+    CachingJwtDecoder cachingJwtDecoder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        user = new User();
+        user.setEmail("customer@bench.dev");
+        user.setRole(RoleEnum.ROLE_USER);
+        token = authUtil.generateToken(user, 1, SECRET, null);
+        nimbusJwtDecoder = NimbusJwtDecoder.withSecretKey(new SecretKeySpec(SECRET.getBytes(), "HS512"))
+                .macAlgorithm(MacAlgorithm.HS512).build();
+        cachingJwtDecoder = new CachingJwtDecoder(nimbusJwtDecoder, 10_000);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return authUtil.generateToken(user, 1, SECRET, null);
+    }
+
+    @Benchmark
+    public SignedJWT verifyToken() throws Exception {
+        return authUtil.verifyToken(token, SECRET);
+    }
+
+    //mỗi request: verify HMAC + parse claims
+    @Benchmark
+    public Jwt decodeAccessToken() {
+        return nimbusJwtDecoder.decode(token);
+    }
+
+    //cùng token lặp lại: chỉ SHA-256 + tra cache
+    @Benchmark
+    public Jwt decodeAccessTokenCached() {
+        return cachingJwtDecoder.decode(token);
+    }
+
+    @Benchmark
+    public String vnPayHmacSHA512() {
+        return VNPayUtil.hmacSHA512(VNPAY_SECRET, VNPAY_QUERY);
+    }
+}
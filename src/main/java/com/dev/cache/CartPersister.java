@@ -0,0 +1,120 @@
+package com.dev.cache;
+
+import com.dev.dto.response.IngredientItemResponse;
+import com.dev.enums.ErrorEnum;
+import com.dev.exception.AppException;
+import com.dev.mapper.FoodMapper;
+import com.dev.mapper.IngredientItemMapper;
+import com.dev.models.CartItem;
+import com.dev.models.IngredientItem;
+import com.dev.repository.CartItemRepository;
+import com.dev.repository.CartRepository;
+import com.dev.repository.FoodRepository;
+import com.dev.repository.IngredientItemRepository;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+//đọc/ghi LiveCart với bảng Cart/CartItem, dùng chung cho mọi CartStore
+@Component
+public class CartPersister {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final FoodRepository foodRepository;
+    private final IngredientItemRepository ingredientItemRepository;
+    private final FoodMapper foodMapper;
+    private final IngredientItemMapper ingredientItemMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public CartPersister(
+            CartRepository cartRepository,
+            CartItemRepository cartItemRepository,
+            FoodRepository foodRepository,
+            IngredientItemRepository ingredientItemRepository,
+            FoodMapper foodMapper,
+            IngredientItemMapper ingredientItemMapper,
+            TransactionTemplate transactionTemplate
+    ) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.foodRepository = foodRepository;
+        this.ingredientItemRepository = ingredientItemRepository;
+        this.foodMapper = foodMapper;
+        this.ingredientItemMapper = ingredientItemMapper;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    //id của dòng = CartItem.lineNo, row cũ chưa có lineNo thì dùng id CartItem
+    public LiveCart load(Long cartId) {
+        return transactionTemplate.execute(status -> {
+            long storedVersion = cartRepository.findVersionById(cartId)
+                    .orElseThrow(() -> new AppException(ErrorEnum.CART_NOT_FOUND));
+            List<LiveCart.Line> lines = new ArrayList<>();
+            for (CartItem cartItem : cartItemRepository.findByCartIdWithFood(cartId)) {
+                Set<Long> ingredientIds = new HashSet<>();
+                List<IngredientItemResponse> ingredients = new ArrayList<>();
+                for (IngredientItem ingredient : cartItem.getIngredients()) {
+                    ingredientIds.add(ingredient.getId());
+                    ingredients.add(ingredientItemMapper.toIngredientItemResponse(ingredient));
+                }
+                lines.add(new LiveCart.Line(
+                        cartItem.getLineNo() != null ? cartItem.getLineNo() : cartItem.getId(),
+                        cartItem.getFood().getId(),
+                        cartItem.getFood().getRestaurant().getId(),
+                        cartItem.getQuantity(),
+                        cartItem.getTotalPrice(),
+                        cartItem.getSpecialInstructions(),
+                        Set.copyOf(ingredientIds),
+                        foodMapper.toFoodOptimizeResponse(cartItem.getFood()),
+                        List.copyOf(ingredients)));
+            }
+            lines.sort(Comparator.comparing(LiveCart.Line::id));
+            return new LiveCart(cartId, storedVersion, lines);
+        });
+    }
+
+    /*
+     * Ghi đè toàn bộ item của các cart trong 1 transaction, id CartItem đổi nhưng lineNo giữ id dòng.
+     * Cart.version trong DB phải còn bằng storedVersion của snapshot (tức là chưa ai khác ghi cart đó
+     * từ lúc load), nếu không cả lô rollback với OptimisticLockingFailureException.
+     * Ghi xong version trong DB = storedVersion + 1.
+     */
+    public void saveAll(Collection<LiveCart.Snapshot> snapshots) {
+        if(snapshots.isEmpty()) {
+            return;
+        }
+        List<Long> cartIds = snapshots.stream().map(LiveCart.Snapshot::cartId).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            //kiểm tra version trước khi xóa item để không ghi đè bản mới hơn của node khác
+            for (LiveCart.Snapshot snapshot : snapshots) {
+                if(cartRepository.updateTotalPrice(snapshot.cartId(), snapshot.totalPrice(), snapshot.storedVersion()) == 0) {
+                    throw new OptimisticLockingFailureException(
+                            "Cart " + snapshot.cartId() + " was changed since version " + snapshot.storedVersion());
+                }
+            }
+            cartItemRepository.deleteIngredientLinksByCartIds(cartIds);
+            cartItemRepository.deleteByCartIds(cartIds);
+
+            List<CartItem> cartItems = new ArrayList<>();
+            for (LiveCart.Snapshot snapshot : snapshots) {
+                for (LiveCart.Line line : snapshot.lines()) {
+                    CartItem cartItem = new CartItem();
+                    cartItem.setLineNo(line.id());
+                    cartItem.setCart(cartRepository.getReferenceById(snapshot.cartId()));
+                    cartItem.setFood(foodRepository.getReferenceById(line.foodId()));
+                    cartItem.setQuantity(line.quantity());
+                    cartItem.setTotalPrice(line.totalPrice());
+                    cartItem.setSpecialInstructions(line.specialInstructions());
+                    Set<IngredientItem> ingredients = new HashSet<>();
+                    line.ingredientIds().forEach(id -> ingredients.add(ingredientItemRepository.getReferenceById(id)));
+                    cartItem.setIngredients(ingredients);
+                    cartItems.add(cartItem);
+                }
+            }
+            cartItemRepository.saveAll(cartItems);
+        });
+    }
+}
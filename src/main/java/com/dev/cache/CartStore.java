@@ -0,0 +1,24 @@
+package com.dev.cache;
+
+import java.util.List;
+import java.util.function.Function;
+
+/*
+ * Nơi giữ cart đang được sửa. CartService chỉ làm việc qua interface này. Chọn bằng cart.store.type:
+ * - database (mặc định): DatabaseCartStore, mỗi update ghi thẳng xuống DB dưới row lock, an toàn khi chạy nhiều node.
+ * - memory: InMemoryCartStore, giữ cart trong bộ nhớ và ghi write-behind, chỉ dùng khi chạy 1 node.
+ */
+public interface CartStore {
+
+    //chạy mutation dưới lock của cart, cart có thay đổi thì được ghi xuống DB (ngay hoặc ở lần flush sau tùy store)
+    <T> T update(Long cartId, Function<LiveCart, T> mutation);
+
+    //đọc cart (InMemoryCartStore: dưới lock của cart), không đánh dấu thay đổi
+    <T> T read(Long cartId, Function<LiveCart, T> reader);
+
+    //lấy hết dòng ra khỏi cart cho checkout, gọi trong transaction của order: rollback thì các dòng được trả lại cart
+    List<LiveCart.Line> claimLines(Long cartId);
+
+    //ghi ngay các cart đã thay đổi xuống DB
+    void flush();
+}
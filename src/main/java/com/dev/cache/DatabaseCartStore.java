@@ -0,0 +1,76 @@
+package com.dev.cache;
+
+import com.dev.enums.ErrorEnum;
+import com.dev.exception.AppException;
+import com.dev.repository.CartRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Function;
+
+/*
+ * CartStore không giữ gì trong bộ nhớ, dùng được khi chạy nhiều node (mặc định).
+ * Mỗi update khóa row cart (SELECT ... FOR UPDATE), load cart, chạy mutation rồi ghi lại ngay
+ * trong cùng transaction, nên 2 node sửa cùng cart sẽ chạy lần lượt chứ không ghi đè nhau.
+ * Nằm trong transaction của caller nếu có (vd checkout), rollback thì cart cũng rollback.
+ */
+@Service
+@ConditionalOnProperty(name = "cart.store.type", havingValue = "database", matchIfMissing = true)
+public class DatabaseCartStore implements CartStore {
+
+    private final CartRepository cartRepository;
+    private final CartPersister cartPersister;
+    private final TransactionTemplate transactionTemplate;
+
+    public DatabaseCartStore(
+            CartRepository cartRepository,
+            CartPersister cartPersister,
+            TransactionTemplate transactionTemplate
+    ) {
+        this.cartRepository = cartRepository;
+        this.cartPersister = cartPersister;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public <T> T update(Long cartId, Function<LiveCart, T> mutation) {
+        return transactionTemplate.execute(status -> {
+            if(cartRepository.findByIdForUpdate(cartId).isEmpty()) {
+                throw new AppException(ErrorEnum.CART_NOT_FOUND);
+            }
+            LiveCart cart = cartPersister.load(cartId);
+            long version = cart.getVersion();
+            T result = mutation.apply(cart);
+            if(cart.getVersion() != version) {
+                cartPersister.saveAll(List.of(cart.snapshot()));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public <T> T read(Long cartId, Function<LiveCart, T> reader) {
+        return reader.apply(cartPersister.load(cartId));
+    }
+
+    //update chạy trong transaction của order, order rollback thì các dòng cũng quay lại cart
+    @Override
+    public List<LiveCart.Line> claimLines(Long cartId) {
+        if(!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("claimLines must run inside a transaction");
+        }
+        return update(cartId, cart -> {
+            List<LiveCart.Line> lines = List.copyOf(cart.getLines());
+            cart.clear();
+            return lines;
+        });
+    }
+
+    //mọi thay đổi đã được ghi trong update
+    @Override
+    public void flush() {
+    }
+}
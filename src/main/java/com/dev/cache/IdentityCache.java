@@ -0,0 +1,137 @@
+package com.dev.cache;
+
+import com.dev.config.PrimaryReads;
+import com.dev.enums.ErrorEnum;
+import com.dev.enums.RoleEnum;
+import com.dev.exception.AppException;
+import com.dev.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/*
+ * email (subject của JWT) -> (userId, role, restaurantId) để service không phải findByEmail/findByOwnerEmail mỗi request.
+ * - Trong 1 request: giữ trong request attribute, gọi nhiều lần cũng chỉ tra 1 lần.
+ * - Giữa các request: Caffeine TTL ngắn (identity.cache.ttl-seconds), xóa khi restaurant/user đổi.
+ * - Token có claim uid của ROLE_USER thì không cần tra gì (user không có restaurant).
+ */
+@Service
+public class IdentityCache {
+
+    private static final String REQUEST_ATTRIBUTE = IdentityCache.class.getName();
+
+    private final UserRepository userRepository;
+    private final PrimaryReads primaryReads;
+    private final Cache<String, Identity> cache;
+
+    public record Identity(Long userId, String email, RoleEnum role, Long restaurantId) {
+    }
+
+    public IdentityCache(
+            UserRepository userRepository,
+            PrimaryReads primaryReads,
+            MeterRegistry meterRegistry,
+            @Value("${identity.cache.max-size:50000}") long maxSize,
+            @Value("${identity.cache.ttl-seconds:60}") long ttlSeconds
+    ) {
+        this.userRepository = userRepository;
+        this.primaryReads = primaryReads;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "identity");
+    }
+
+    //user đang đăng nhập, không có thì NOT_FOUND_USER
+    public Identity current() {
+        return findCurrent().orElseThrow(() -> new AppException(ErrorEnum.NOT_FOUND_USER));
+    }
+
+    //restaurant của owner đang đăng nhập, không có thì RES_NOT_FOUND
+    public Long currentRestaurantId() {
+        Long restaurantId = current().restaurantId();
+        if(restaurantId == null) {
+            throw new AppException(ErrorEnum.RES_NOT_FOUND);
+        }
+        return restaurantId;
+    }
+
+    //request chưa đăng nhập (api public) -> empty, không query
+    public Optional<Identity> findCurrent() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if(authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return Optional.empty();
+        }
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if(request != null && request.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Identity identity) {
+            return Optional.of(identity);
+        }
+        Identity identity = fromClaims(authentication);
+        if(identity == null) {
+            identity = find(authentication.getName());
+        }
+        if(identity != null && request != null) {
+            request.setAttribute(REQUEST_ATTRIBUTE, identity, RequestAttributes.SCOPE_REQUEST);
+        }
+        return Optional.ofNullable(identity);
+    }
+
+    public void evict(String email) {
+        cache.invalidate(email);
+    }
+
+    //restaurant đổi (tạo mới, disable...) -> bỏ identity của owner; tạo mới thì identity cũ có restaurantId null nên bỏ theo email
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRestaurantChanged(RestaurantChangedEvent event) {
+        if(event.ownerEmail() != null) {
+            cache.invalidate(event.ownerEmail());
+        }
+        cache.asMap().values().removeIf(identity -> Objects.equals(identity.restaurantId(), event.restaurantId()));
+    }
+
+    private Identity find(String email) {
+        Identity cached = cache.getIfPresent(email);
+        if(cached != null) {
+            return cached;
+        }
+        //không cache email chưa có user
+        List<Object[]> rows = primaryReads.get(() -> userRepository.findIdentityRows(email));
+        if(rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = rows.get(0);
+        Identity identity = new Identity((Long) row[0], email, (RoleEnum) row[1], (Long) row[2]);
+        cache.put(email, identity);
+        return identity;
+    }
+
+    private Identity fromClaims(Authentication authentication) {
+        if(!(authentication instanceof JwtAuthenticationToken jwtAuthentication)) {
+            return null;
+        }
+        Jwt jwt = jwtAuthentication.getToken();
+        Object userId = jwt.getClaim("uid");
+        if(userId instanceof Number id && RoleEnum.ROLE_USER.name().equals(jwt.getClaimAsString("scope"))) {
+            return new Identity(id.longValue(), authentication.getName(), RoleEnum.ROLE_USER, null);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,215 @@
+package com.dev.cache;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/*
+ * CartStore trong bộ nhớ của 1 node, bật bằng cart.store.type=memory. Chỉ dùng khi chạy 1 node:
+ * nhiều node giữ bản riêng của cùng 1 cart thì bản ghi sau bị từ chối (xem CartPersister.saveAll)
+ * và thay đổi của node đó bị bỏ.
+ * - Lần đầu đụng tới cart thì load từ DB, sau đó mọi thao tác chỉ sửa bộ nhớ.
+ * - Cart bị sửa được đánh dấu dirty, flush định kỳ ghi snapshot xuống DB theo lô
+ *   (1 transaction / cart.store.batch-size cart). Chỉ có luồng flush ghi bảng cart nên không có 2 bản ghi đè nhau.
+ * - Lô lỗi thì ghi lại từng cart trong transaction riêng; cart lỗi liên tiếp cart.store.max-write-failures lần
+ *   bị bỏ khỏi bộ nhớ (DB giữ bản đã ghi gần nhất) thay vì giữ và ghi lại mãi.
+ * - Ghi có điều kiện theo Cart.version: nếu cart đã được ghi bởi nơi khác từ lúc load thì bỏ bản trong bộ nhớ
+ *   và load lại từ DB, không ghi đè bản mới hơn.
+ * - Cart đã flush và không ai đụng tới trong cart.store.idle-minutes thì bị bỏ khỏi bộ nhớ.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "cart.store.type", havingValue = "memory")
+public class InMemoryCartStore implements CartStore {
+
+    private final Map<Long, LiveCart> carts = new ConcurrentHashMap<>();
+    private final CartPersister cartPersister;
+    private final int batchSize;
+    private final long idleMillis;
+    private final int maxWriteFailures;
+    //cartId -> số lần ghi lỗi liên tiếp, chỉ luồng flush (synchronized) đụng tới
+    private final Map<Long, Integer> writeFailures = new HashMap<>();
+
+    public InMemoryCartStore(
+            CartPersister cartPersister,
+            @Value("${cart.store.batch-size:100}") int batchSize,
+            @Value("${cart.store.idle-minutes:30}") long idleMinutes,
+            @Value("${cart.store.max-write-failures:3}") int maxWriteFailures
+    ) {
+        this.cartPersister = cartPersister;
+        this.batchSize = batchSize;
+        this.idleMillis = Duration.ofMinutes(idleMinutes).toMillis();
+        this.maxWriteFailures = Math.max(maxWriteFailures, 1);
+    }
+
+    @Override
+    public <T> T update(Long cartId, Function<LiveCart, T> mutation) {
+        while (true) {
+            LiveCart cart = carts.computeIfAbsent(cartId, cartPersister::load);
+            synchronized (cart) {
+                //bị evict giữa lúc lấy ra và lúc lock thì lấy lại
+                if (cart.evicted) {
+                    continue;
+                }
+                long version = cart.getVersion();
+                try {
+                    return mutation.apply(cart);
+                } finally {
+                    if (cart.getVersion() != version) {
+                        cart.dirty = true;
+                    }
+                    cart.lastAccess = System.currentTimeMillis();
+                }
+            }
+        }
+    }
+
+    @Override
+    public <T> T read(Long cartId, Function<LiveCart, T> reader) {
+        while (true) {
+            LiveCart cart = carts.computeIfAbsent(cartId, cartPersister::load);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                cart.lastAccess = System.currentTimeMillis();
+                return reader.apply(cart);
+            }
+        }
+    }
+
+    @Override
+    public List<LiveCart.Line> claimLines(Long cartId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("claimLines must run inside a transaction");
+        }
+        List<LiveCart.Line> claimed = update(cartId, cart -> {
+            List<LiveCart.Line> lines = List.copyOf(cart.getLines());
+            cart.clear();
+            return lines;
+        });
+        if (!claimed.isEmpty()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        update(cartId, cart -> {
+                            cart.restoreLines(claimed);
+                            return null;
+                        });
+                    }
+                }
+            });
+        }
+        return claimed;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${cart.store.flush-ms:2000}")
+    @PreDestroy
+    public synchronized void flush() {
+        List<LiveCart.Snapshot> batch = new ArrayList<>(batchSize);
+        long idleBefore = System.currentTimeMillis() - idleMillis;
+        for (LiveCart cart : carts.values()) {
+            synchronized (cart) {
+                if (cart.dirty) {
+                    batch.add(cart.snapshot());
+                    cart.dirty = false;
+                } else if (cart.lastAccess < idleBefore) {
+                    cart.evicted = true;
+                    carts.remove(cart.getId(), cart);
+                }
+            }
+            if (batch.size() >= batchSize) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        write(batch);
+    }
+
+    private void write(List<LiveCart.Snapshot> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() == 1) {
+            writeOne(batch.get(0));
+            return;
+        }
+        try {
+            cartPersister.saveAll(batch);
+            batch.forEach(this::stored);
+        } catch (RuntimeException e) {
+            //1 cart lỗi (vd FK tới ingredient đã xóa) làm rollback cả lô: ghi lại từng cart để các cart khác không bị kẹt
+            log.warn("Flush {} carts failed, writing them one by one: {}", batch.size(), e.getMessage());
+            for (LiveCart.Snapshot snapshot : batch) {
+                writeOne(snapshot);
+            }
+        }
+    }
+
+    private void writeOne(LiveCart.Snapshot snapshot) {
+        Long cartId = snapshot.cartId();
+        try {
+            cartPersister.saveAll(List.of(snapshot));
+            stored(snapshot);
+        } catch (OptimisticLockingFailureException e) {
+            //ghi lại cũng sẽ lỗi: bỏ bản trong bộ nhớ, lần sau đụng tới cart sẽ load bản trong DB
+            writeFailures.remove(cartId);
+            LiveCart cart = carts.get(cartId);
+            if (cart != null) {
+                synchronized (cart) {
+                    cart.evicted = true;
+                    carts.remove(cartId, cart);
+                }
+            }
+            log.warn("Cart {} was changed by another writer, dropping unsaved changes: {}", cartId, e.getMessage());
+        } catch (RuntimeException e) {
+            int failures = writeFailures.merge(cartId, 1, Integer::sum);
+            LiveCart cart = carts.get(cartId);
+            if (cart == null) {
+                writeFailures.remove(cartId);
+                return;
+            }
+            synchronized (cart) {
+                if (failures < maxWriteFailures) {
+                    //đánh dấu lại để lần flush sau ghi tiếp (với snapshot mới nhất)
+                    cart.dirty = true;
+                    log.warn("Flush cart {} failed ({}/{}), will retry: {}", cartId, failures, maxWriteFailures, e.getMessage());
+                    return;
+                }
+                //lần sau đụng tới cart sẽ load lại từ DB
+                cart.evicted = true;
+                carts.remove(cartId, cart);
+            }
+            writeFailures.remove(cartId);
+            log.error("Flush cart {} failed {} times, dropping unsaved changes", cartId, failures, e);
+        }
+    }
+
+    //DB đã có version storedVersion + 1, các snapshot sau phải dựa trên version đó
+    private void stored(LiveCart.Snapshot snapshot) {
+        writeFailures.remove(snapshot.cartId());
+        LiveCart cart = carts.get(snapshot.cartId());
+        if (cart == null) {
+            return;
+        }
+        synchronized (cart) {
+            cart.storedVersion = snapshot.storedVersion() + 1;
+        }
+    }
+}
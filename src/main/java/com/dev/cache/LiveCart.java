@@ -0,0 +1,178 @@
+package com.dev.cache;
+
+import com.dev.dto.response.FoodOptimizeResponse;
+import com.dev.dto.response.IngredientItemResponse;
+
+import java.util.*;
+
+/*
+ * Cart đang được sửa, giữ trong CartStore. Không tự đồng bộ: mọi truy cập đi qua
+ * CartStore.update/read, các hàm đó giữ lock của cart.
+ * Line là record bất biến nên write-behind chỉ cần copy list, không copy từng item.
+ */
+public class LiveCart {
+
+    public record Line(
+            Long id,
+            Long foodId,
+            Long restaurantId,
+            int quantity,
+            long totalPrice,
+            String specialInstructions,
+            Set<Long> ingredientIds,
+            FoodOptimizeResponse food,
+            List<IngredientItemResponse> ingredients
+    ) {
+        //giá 1 phần = totalPrice / quantity, giữ nguyên giá lúc thêm vào cart
+        public Line withQuantity(int newQuantity) {
+            long unitPrice = totalPrice / quantity;
+            return new Line(id, foodId, restaurantId, newQuantity, unitPrice * newQuantity,
+                    specialInstructions, ingredientIds, food, ingredients);
+        }
+    }
+
+    //storedVersion = Cart.version trong DB lúc snapshot được dựng trên đó, dùng để ghi có điều kiện
+    public record Snapshot(Long cartId, long version, long storedVersion, long totalPrice, List<Line> lines) {
+    }
+
+    private final Long id;
+    private final List<Line> lines = new ArrayList<>();
+    private long totalPrice;
+    private long nextLineId = 1;
+    private long version;
+
+    //trạng thái do CartStore quản lý
+    boolean dirty;
+    boolean evicted;
+    long lastAccess;
+    //Cart.version trong DB mà bản trong bộ nhớ đang dựa trên
+    long storedVersion;
+
+    public LiveCart(Long id, long storedVersion, List<Line> persistedLines) {
+        this.id = id;
+        this.storedVersion = storedVersion;
+        for (Line line : persistedLines) {
+            lines.add(line);
+            totalPrice += line.totalPrice();
+            nextLineId = Math.max(nextLineId, line.id() + 1);
+        }
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public List<Line> getLines() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    public long getTotalPrice() {
+        return totalPrice;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    public Long getRestaurantId() {
+        return lines.isEmpty() ? null : lines.get(0).restaurantId();
+    }
+
+    public Optional<Line> findLine(Long lineId) {
+        return lines.stream().filter(line -> line.id().equals(lineId)).findFirst();
+    }
+
+    //cùng food + cùng special instruction + cùng bộ ingredient thì gộp vào 1 dòng
+    public Optional<Line> findMatchingLine(Long foodId, String specialInstructions, Set<Long> ingredientIds) {
+        return lines.stream()
+                .filter(line -> line.foodId().equals(foodId)
+                        && Objects.equals(line.specialInstructions(), specialInstructions)
+                        && line.ingredientIds().equals(ingredientIds))
+                .findFirst();
+    }
+
+    public Line addLine(Long foodId, Long restaurantId, int quantity, long totalPrice, String specialInstructions,
+                        Set<Long> ingredientIds, FoodOptimizeResponse food, List<IngredientItemResponse> ingredients) {
+        Line line = new Line(nextLineId++, foodId, restaurantId, quantity, totalPrice, specialInstructions,
+                Set.copyOf(ingredientIds), food, List.copyOf(ingredients));
+        lines.add(line);
+        this.totalPrice += totalPrice;
+        version++;
+        return line;
+    }
+
+    public Line setQuantity(Long lineId, int quantity) {
+        for (int i = 0; i < lines.size(); i++) {
+            Line line = lines.get(i);
+            if (line.id().equals(lineId)) {
+                Line updated = line.withQuantity(quantity);
+                lines.set(i, updated);
+                totalPrice += updated.totalPrice() - line.totalPrice();
+                version++;
+                return updated;
+            }
+        }
+        return null;
+    }
+
+    public boolean removeLine(Long lineId) {
+        return removeLines(List.of(lineId)) > 0;
+    }
+
+    public int removeLines(Collection<Long> lineIds) {
+        int removed = 0;
+        Iterator<Line> iterator = lines.iterator();
+        while (iterator.hasNext()) {
+            Line line = iterator.next();
+            if (lineIds.contains(line.id())) {
+                iterator.remove();
+                totalPrice -= line.totalPrice();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            version++;
+        }
+        return removed;
+    }
+
+    //trả lại các dòng đã lấy ra khi checkout bị rollback. Dòng khác nhà hàng với cart hiện tại thì bỏ,
+    //id trùng với dòng thêm vào sau đó (cart đã load lại từ DB) thì cấp id mới
+    public void restoreLines(Collection<Line> restored) {
+        boolean changed = false;
+        for (Line line : restored) {
+            Long restaurantId = getRestaurantId();
+            if (restaurantId != null && !restaurantId.equals(line.restaurantId())) {
+                continue;
+            }
+            if (findLine(line.id()).isPresent()) {
+                line = new Line(nextLineId, line.foodId(), line.restaurantId(), line.quantity(), line.totalPrice(),
+                        line.specialInstructions(), line.ingredientIds(), line.food(), line.ingredients());
+            }
+            lines.add(line);
+            totalPrice += line.totalPrice();
+            nextLineId = Math.max(nextLineId, line.id() + 1);
+            changed = true;
+        }
+        if (changed) {
+            lines.sort(Comparator.comparing(Line::id));
+            version++;
+        }
+    }
+
+    public void clear() {
+        if (!lines.isEmpty()) {
+            lines.clear();
+            totalPrice = 0;
+            version++;
+        }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(id, version, storedVersion, totalPrice, List.copyOf(lines));
+    }
+}
@@ -0,0 +1,53 @@
+package com.dev.cache;
+
+import com.dev.config.PrimaryReads;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+@Service
+public class MenuCache {
+
+    private final Cache<Long, MenuSnapshot> cache;
+    private final PrimaryReads primaryReads;
+
+    public MenuCache(
+            PrimaryReads primaryReads,
+            MeterRegistry meterRegistry,
+            @Value("${menu.cache.max-size:1000}") long maxSize,
+            @Value("${menu.cache.ttl-minutes:10}") long ttlMinutes
+    ) {
+        this.primaryReads = primaryReads;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        //hits, misses, evictions... -> cache.* metrics với tag cache=menuSnapshot
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "menuSnapshot");
+    }
+
+    //build 1 lần cho mỗi restaurant, các request đồng thời chờ cùng 1 lần build, luôn build từ primary
+    public MenuSnapshot get(Long restaurantId, Function<Long, MenuSnapshot> loader) {
+        return cache.get(restaurantId, id -> primaryReads.get(() -> loader.apply(id)));
+    }
+
+    public void evict(Long restaurantId) {
+        if(restaurantId != null) {
+            cache.invalidate(restaurantId);
+        }
+    }
+
+    //xóa sau commit để request khác không build lại từ dữ liệu cũ
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMenuChanged(MenuChangedEvent event) {
+        evict(event.restaurantId());
+    }
+}
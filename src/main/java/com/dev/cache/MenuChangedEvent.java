@@ -0,0 +1,4 @@
+package com.dev.cache;
+
+public record MenuChangedEvent(Long restaurantId) {
+}
@@ -0,0 +1,31 @@
+package com.dev.cache;
+
+import java.util.List;
+import java.util.Set;
+
+//menu của 1 nhà hàng tại thời điểm build, không thay đổi sau khi tạo
+public record MenuSnapshot(
+        Long restaurantId,
+        List<Category> categories,
+        long builtAt
+) {
+    public record Category(
+            String name,
+            List<MenuFood> foods
+    ) {
+    }
+
+    public record MenuFood(
+            Long id,
+            String name,
+            Long price,
+            String description,
+            Set<String> images,
+            boolean available,
+            boolean vegetarian,
+            boolean seasonal,
+            boolean disable,
+            int ingredientsNum
+    ) {
+    }
+}
@@ -0,0 +1,172 @@
+package com.dev.cache;
+
+import com.dev.config.PrimaryReads;
+import com.dev.dto.response.OrderEvent;
+import com.dev.enums.OrderStatus;
+import com.dev.repository.OrderRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+
+/*
+ * Thống kê theo nhà hàng cho DeliveryEstimator: thời gian nhận đơn (createdAt -> confirmedAt),
+ * thời gian chuẩn bị (confirmedAt -> shippedAt) và số order đang chờ (PENDING + CONFIRMED).
+ * Lần đầu load từ order.quote.history-size order gần nhất, sau đó cập nhật dần theo OrderEvent sau commit.
+ * Trung bình/phương sai là EWMA (order.quote.smoothing) nên order mới có trọng số lớn hơn.
+ * Entry hết hạn sau ttl-minutes và load lại từ DB, sửa sai lệch của queueDepth nếu có event bị bỏ lỡ.
+ */
+@Service
+public class PrepTimeCache {
+
+    //bỏ mẫu bất thường (order quên chuyển trạng thái cả ngày)
+    private static final double MAX_SAMPLE_SECONDS = 4 * 3600;
+
+    private final Cache<Long, Stats> cache;
+    private final OrderRepository orderRepository;
+    private final PrimaryReads primaryReads;
+    private final int historySize;
+    private final double smoothing;
+    private final double defaultAcceptSeconds;
+    private final double defaultPrepSeconds;
+
+    public PrepTimeCache(
+            OrderRepository orderRepository,
+            PrimaryReads primaryReads,
+            MeterRegistry meterRegistry,
+            @Value("${order.quote.cache.max-size:10000}") long maxSize,
+            @Value("${order.quote.cache.ttl-minutes:30}") long ttlMinutes,
+            @Value("${order.quote.history-size:50}") int historySize,
+            @Value("${order.quote.smoothing:0.2}") double smoothing,
+            @Value("${order.quote.default-accept-minutes:3}") double defaultAcceptMinutes,
+            @Value("${order.quote.default-prep-minutes:15}") double defaultPrepMinutes
+    ) {
+        this.orderRepository = orderRepository;
+        this.primaryReads = primaryReads;
+        this.historySize = historySize;
+        this.smoothing = smoothing;
+        this.defaultAcceptSeconds = defaultAcceptMinutes * 60;
+        this.defaultPrepSeconds = defaultPrepMinutes * 60;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "prepTimeStats");
+    }
+
+    public record Snapshot(
+            double acceptMeanSeconds,
+            double acceptStdSeconds,
+            double prepMeanSeconds,
+            double prepStdSeconds,
+            long samples,
+            long queueDepth
+    ) {
+    }
+
+    public Snapshot get(Long restaurantId) {
+        return cache.get(restaurantId, id -> primaryReads.get(() -> load(id))).snapshot();
+    }
+
+    //chỉ cập nhật entry đang có trong cache, entry chưa load thì lần load sau đọc từ DB
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvent(OrderEvent event) {
+        Stats stats = cache.getIfPresent(event.restaurantId());
+        if(stats == null) {
+            return;
+        }
+        if(OrderEvent.CREATED.equals(event.type())) {
+            stats.queueChanged(1);
+            return;
+        }
+        if(!OrderEvent.STATUS_CHANGED.equals(event.type()) || event.at() == null) {
+            return;
+        }
+        switch (event.orderStatus()) {
+            case CONFIRMED -> stats.acceptSample(seconds(event.createdAt(), event.at()));
+            case SHIPPING -> {
+                //rời hàng đợi bếp
+                stats.queueChanged(-1);
+                stats.prepSample(seconds(event.confirmedAt(), event.at()));
+            }
+            case CANCELLED -> stats.queueChanged(-1);
+            default -> {
+            }
+        }
+    }
+
+    private Stats load(Long restaurantId) {
+        Stats stats = new Stats(smoothing, defaultAcceptSeconds, defaultPrepSeconds);
+        List<Object[]> rows = orderRepository.findRecentPrepTimes(restaurantId, PageRequest.ofSize(historySize));
+        //rows mới nhất trước, EWMA cần đi từ cũ tới mới
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            Object[] row = rows.get(i);
+            stats.acceptSample(seconds((Date) row[0], (Date) row[1]));
+            stats.prepSample(seconds((Date) row[1], (Date) row[2]));
+        }
+        stats.queueChanged(orderRepository.countByRestaurantIdAndOrderStatusIn(
+                restaurantId, EnumSet.of(OrderStatus.PENDING, OrderStatus.CONFIRMED)));
+        return stats;
+    }
+
+    //-1 khi thiếu mốc thời gian (order cũ trước khi có cột confirmedAt/shippedAt)
+    private static double seconds(Date from, Date to) {
+        if(from == null || to == null) {
+            return -1;
+        }
+        return (to.getTime() - from.getTime()) / 1000.0;
+    }
+
+    private static class Stats {
+        private final double alpha;
+        private double acceptMean;
+        private double acceptVar;
+        private double prepMean;
+        private double prepVar;
+        private long samples;
+        private long queueDepth;
+
+        Stats(double alpha, double acceptMean, double prepMean) {
+            this.alpha = alpha;
+            this.acceptMean = acceptMean;
+            this.prepMean = prepMean;
+        }
+
+        synchronized void acceptSample(double seconds) {
+            if(seconds < 0 || seconds > MAX_SAMPLE_SECONDS) {
+                return;
+            }
+            double diff = seconds - acceptMean;
+            acceptMean += alpha * diff;
+            acceptVar = (1 - alpha) * (acceptVar + alpha * diff * diff);
+        }
+
+        synchronized void prepSample(double seconds) {
+            if(seconds < 0 || seconds > MAX_SAMPLE_SECONDS) {
+                return;
+            }
+            double diff = seconds - prepMean;
+            prepMean += alpha * diff;
+            prepVar = (1 - alpha) * (prepVar + alpha * diff * diff);
+            samples++;
+        }
+
+        synchronized void queueChanged(long delta) {
+            queueDepth = Math.max(0, queueDepth + delta);
+        }
+
+        synchronized Snapshot snapshot() {
+            return new Snapshot(acceptMean, Math.sqrt(acceptVar), prepMean, Math.sqrt(prepVar), samples, queueDepth);
+        }
+    }
+}
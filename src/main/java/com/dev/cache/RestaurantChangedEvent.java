@@ -0,0 +1,9 @@
+package com.dev.cache;
+
+//ownerEmail chỉ có khi restaurant vừa được tạo: identity đã cache của owner chưa có restaurantId
+public record RestaurantChangedEvent(Long restaurantId, String ownerEmail) {
+
+    public RestaurantChangedEvent(Long restaurantId) {
+        this(restaurantId, null);
+    }
+}
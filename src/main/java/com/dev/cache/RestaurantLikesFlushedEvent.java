@@ -0,0 +1,6 @@
+package com.dev.cache;
+
+import java.util.Set;
+
+public record RestaurantLikesFlushedEvent(Set<Long> restaurantIds) {
+}
@@ -0,0 +1,195 @@
+package com.dev.cache;
+
+import com.dev.config.PrimaryReads;
+import com.dev.models.Address;
+import com.dev.models.ContactInfo;
+import com.dev.repository.RestaurantRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.*;
+
+/*
+ * Trang danh sách nhà hàng (getAllRestaurants/getTotalPages) dùng chung cho mọi user:
+ * - id các nhà hàng được hiển thị giữ trong bộ nhớ (mảng đã sort), tổng số và cắt trang không cần COUNT(*)/OFFSET.
+ * - Nội dung từng trang (page, size) cache bằng Caffeine, like của từng user được ghép ở service.
+ * - RestaurantChangedEvent (tạo, sửa, disable, mở/đóng) cập nhật id đó và bỏ mọi trang đã cache;
+ *   node khác không nhận event nên tự làm mới theo refresh-ms và ttl-seconds.
+ * Đọc qua PrimaryReads: dữ liệu cache không được lấy từ replica đang trễ.
+ */
+@Service
+public class RestaurantListingCache {
+
+    private final RestaurantRepository restaurantRepository;
+    private final PrimaryReads primaryReads;
+    private final Cache<PageKey, List<Row>> pages;
+    //null = chưa load, version tăng mỗi lần danh sách id đổi để trang build từ danh sách cũ không được dùng lại
+    private volatile Listing listing;
+
+    public record Row(
+            Long id,
+            String name,
+            String description,
+            String cuisineType,
+            String openHours,
+            boolean open,
+            Long likes,
+            Date createdAt,
+            ContactInfo contactInfo,
+            String owner,
+            Address address,
+            Set<String> images
+    ) {
+    }
+
+    public record Page(List<Row> rows, long totalElements, int totalPages) {
+    }
+
+    private record Listing(long[] ids, long version) {
+    }
+
+    private record PageKey(long version, int page, int size) {
+    }
+
+    public RestaurantListingCache(
+            RestaurantRepository restaurantRepository,
+            PrimaryReads primaryReads,
+            MeterRegistry meterRegistry,
+            @Value("${restaurant.listing.max-pages:1000}") long maxPages,
+            @Value("${restaurant.listing.ttl-seconds:60}") long ttlSeconds
+    ) {
+        this.restaurantRepository = restaurantRepository;
+        this.primaryReads = primaryReads;
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "restaurantListing");
+    }
+
+    //page bắt đầu từ 1, trang vượt quá cuối danh sách trả rỗng mà không query
+    public Page page(int page, int size) {
+        Listing current = listing();
+        int total = current.ids().length;
+        int totalPages = (total + size - 1) / size;
+        long from = (long) (page - 1) * size;
+        if(from >= total) {
+            return new Page(List.of(), total, totalPages);
+        }
+        long[] ids = Arrays.copyOfRange(current.ids(), (int) from, (int) Math.min(from + size, total));
+        List<Row> rows = pages.get(new PageKey(current.version(), page, size), key -> load(ids));
+        return new Page(rows, total, totalPages);
+    }
+
+    public int totalPages(int size) {
+        return (listing().ids().length + size - 1) / size;
+    }
+
+    //node khác tạo/disable nhà hàng: danh sách ở node này đúng lại sau tối đa refresh-ms
+    @Scheduled(fixedDelayString = "${restaurant.listing.refresh-ms:60000}")
+    public synchronized void refresh() {
+        if(listing == null) {
+            return;
+        }
+        long[] ids = primaryReads.get(restaurantRepository::findListedIds).stream().mapToLong(Long::longValue).toArray();
+        if(!Arrays.equals(ids, listing.ids())) {
+            replace(ids);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onRestaurantChanged(RestaurantChangedEvent event) {
+        if(listing == null || event.restaurantId() == null) {
+            return;
+        }
+        long[] ids = listing.ids();
+        int index = Arrays.binarySearch(ids, event.restaurantId());
+        boolean listed = primaryReads.get(() -> restaurantRepository.existsByIdAndCreatedAtIsNotNullAndDisableFalse(event.restaurantId()));
+        if(listed && index < 0) {
+            int at = -index - 1;
+            long[] added = new long[ids.length + 1];
+            System.arraycopy(ids, 0, added, 0, at);
+            added[at] = event.restaurantId();
+            System.arraycopy(ids, at, added, at + 1, ids.length - at);
+            ids = added;
+        } else if(!listed && index >= 0) {
+            long[] removed = new long[ids.length - 1];
+            System.arraycopy(ids, 0, removed, 0, index);
+            System.arraycopy(ids, index + 1, removed, index, ids.length - index - 1);
+            ids = removed;
+        }
+        //nội dung đổi (tên, ảnh, mở/đóng...) cũng phải build lại trang
+        replace(ids);
+    }
+
+    //likes đã flush xuống DB: trang đang cache giữ số likes cũ
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLikesFlushed(RestaurantLikesFlushedEvent event) {
+        pages.asMap().entrySet().removeIf(entry -> entry.getValue().stream()
+                .anyMatch(row -> event.restaurantIds().contains(row.id())));
+    }
+
+    private Listing listing() {
+        Listing current = listing;
+        if(current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if(listing == null) {
+                listing = new Listing(primaryReads.get(restaurantRepository::findListedIds).stream()
+                        .mapToLong(Long::longValue).toArray(), 0);
+            }
+            return listing;
+        }
+    }
+
+    private void replace(long[] ids) {
+        listing = new Listing(ids, listing.version() + 1);
+        pages.invalidateAll();
+    }
+
+    private List<Row> load(long[] ids) {
+        List<Long> idList = Arrays.stream(ids).boxed().toList();
+        return primaryReads.get(() -> {
+            Map<Long, Set<String>> images = new HashMap<>();
+            for (Object[] image : restaurantRepository.findImagesByIdIn(idList)) {
+                images.computeIfAbsent((Long) image[0], k -> new HashSet<>()).add((String) image[1]);
+            }
+            Map<Long, Row> rows = new HashMap<>();
+            for (Object[] row : restaurantRepository.findListingRows(idList)) {
+                Long id = (Long) row[0];
+                rows.put(id, new Row(id, (String) row[1], (String) row[2], (String) row[3], (String) row[4],
+                        (Boolean) row[5], (Long) row[6], (Date) row[7], (ContactInfo) row[8], (String) row[9],
+                        address(row), Set.copyOf(images.getOrDefault(id, Set.of()))));
+            }
+            //giữ thứ tự id, bỏ nhà hàng vừa bị xóa giữa lúc cắt trang và lúc query
+            return idList.stream().map(rows::get).filter(Objects::nonNull).toList();
+        });
+    }
+
+    //bản sao không gắn với persistence context, an toàn khi dùng chung giữa các request
+    private static Address address(Object[] row) {
+        if(row[10] == null) {
+            return null;
+        }
+        return Address.builder()
+                .id((Long) row[10])
+                .numberStreet((String) row[11])
+                .street((String) row[12])
+                .ward((String) row[13])
+                .district((String) row[14])
+                .city((String) row[15])
+                .postalCode((String) row[16])
+                .latitude((Double) row[17])
+                .longitude((Double) row[18])
+                .build();
+    }
+}
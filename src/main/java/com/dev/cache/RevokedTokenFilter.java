@@ -0,0 +1,103 @@
+package com.dev.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Bloom filter các digest refresh token đã thu hồi (logout, đã rotate) trên node này:
+ * refresh bằng token cũ bị chặn mà không query DB.
+ * Digest là SHA-256 nên đã phân bố đều, lấy 2 long đầu làm h1/h2 (double hashing), không cần hash thêm.
+ * Đầy capacity thì đổi thế hệ, giữ thế hệ trước: token thu hồi quá lâu rơi khỏi filter vẫn bị DB chặn (row đã xóa).
+ * False positive (~fpp) làm 1 token hợp lệ bị từ chối, user chỉ cần đăng nhập lại.
+ */
+@Component
+public class RevokedTokenFilter {
+
+    private final int capacity;
+    private final int bits;
+    private final int hashes;
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    public RevokedTokenFilter(
+            @Value("${auth.refresh.revoked-filter.capacity:100000}") int capacity,
+            @Value("${auth.refresh.revoked-filter.fpp:0.0001}") double fpp
+    ) {
+        this.capacity = capacity;
+        this.bits = (int) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        this.current = new Generation(bits);
+        this.previous = new Generation(bits);
+    }
+
+    public boolean mightContain(String digestHex) {
+        long[] h = hashes(digestHex);
+        return current.mightContain(h[0], h[1]) || previous.mightContain(h[0], h[1]);
+    }
+
+    public void put(String digestHex) {
+        long[] h = hashes(digestHex);
+        Generation generation = current;
+        generation.put(h[0], h[1]);
+        if(generation.count.incrementAndGet() >= capacity) {
+            rotate(generation);
+        }
+    }
+
+    private synchronized void rotate(Generation full) {
+        if(current == full) {
+            previous = full;
+            current = new Generation(bits);
+        }
+    }
+
+    private static long[] hashes(String digestHex) {
+        byte[] digest = HexFormat.of().parseHex(digestHex);
+        long h1 = 0;
+        long h2 = 0;
+        for (int i = 0; i < 8; i++) {
+            h1 = (h1 << 8) | (digest[i] & 0xff);
+            h2 = (h2 << 8) | (digest[i + 8] & 0xff);
+        }
+        return new long[]{h1, h2};
+    }
+
+    private class Generation {
+        final AtomicLongArray words;
+        final AtomicInteger count = new AtomicInteger();
+
+        Generation(int bits) {
+            this.words = new AtomicLongArray((bits + 63) / 64);
+        }
+
+        void put(long h1, long h2) {
+            for (int i = 0; i < hashes; i++) {
+                int index = index(h1, h2, i);
+                long mask = 1L << (index & 63);
+                int word = index >>> 6;
+                long old;
+                do {
+                    old = words.get(word);
+                } while ((old & mask) == 0 && !words.compareAndSet(word, old, old | mask));
+            }
+        }
+
+        boolean mightContain(long h1, long h2) {
+            for (int i = 0; i < hashes; i++) {
+                int index = index(h1, h2, i);
+                if((words.get(index >>> 6) & (1L << (index & 63))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int index(long h1, long h2, int i) {
+            return (int) Math.floorMod(h1 + i * h2, (long) bits);
+        }
+    }
+}
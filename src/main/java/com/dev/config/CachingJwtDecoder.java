@@ -0,0 +1,86 @@
+package com.dev.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+
+/*
+ * Client gửi cùng 1 access token cho mọi request tới khi hết hạn: token đã verify thì giữ Jwt đã decode,
+ * lần sau chỉ tốn 1 lần SHA-256 thay vì HMAC-SHA512 + parse JSON.
+ * Key là SHA-256 của token (không giữ token gốc trong bộ nhớ), entry hết hạn đúng lúc token hết hạn.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Cache<ByteBuffer, Jwt> cache;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maxSize) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpires())
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        ByteBuffer key = sha256(token);
+        Jwt jwt = cache.getIfPresent(key);
+        if(jwt == null) {
+            //token sai chữ ký/hết hạn: delegate ném exception, không cache
+            jwt = delegate.decode(token);
+            cache.put(key, jwt);
+        }
+        if(jwt.getExpiresAt() != null && Instant.now().isAfter(jwt.getExpiresAt())) {
+            cache.invalidate(key);
+            throw new JwtExpiredException("Jwt expired");
+        }
+        return jwt;
+    }
+
+    public Cache<ByteBuffer, Jwt> getCache() {
+        return cache;
+    }
+
+    private static ByteBuffer sha256(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //token không có exp thì giữ tối đa 1 giờ
+    private static class UntilTokenExpires implements Expiry<ByteBuffer, Jwt> {
+        private static final long MAX_NANOS = 3_600_000_000_000L;
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, Jwt jwt, long currentTime) {
+            if(jwt.getExpiresAt() == null) {
+                return MAX_NANOS;
+            }
+            long millis = jwt.getExpiresAt().toEpochMilli() - System.currentTimeMillis();
+            return Math.max(0, Math.min(MAX_NANOS, millis * 1_000_000L));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
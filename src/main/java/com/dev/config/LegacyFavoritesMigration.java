@@ -0,0 +1,115 @@
+package com.dev.config;
+
+import com.dev.models.RestaurantLike;
+import com.dev.repository.RestaurantLikeRepository;
+import com.dev.repository.RestaurantRepository;
+import com.dev.repository.UserRepository;
+import com.dev.service.SchedulerLockService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/*
+ * Chuyển like cũ từ user_favorites (User.favorites trước khi có restaurant_like) sang restaurant_like khi khởi động.
+ * Restaurant.likes đã tính các like này nên không cộng lại counter.
+ * Mỗi chunk 1 transaction, chỉ lấy cặp chưa có trong restaurant_like nên chạy lại giữa chừng vẫn an toàn.
+ * Xong thì đổi tên bảng cũ thành user_favorites_migrated, DB mới không có bảng cũ thì bỏ qua.
+ */
+@Slf4j
+@Component
+public class LegacyFavoritesMigration {
+    private static final String LOCK_NAME = "legacy-favorites-migration";
+
+    @Autowired
+    private RestaurantLikeRepository restaurantLikeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${restaurant.likes.migration-chunk-size:1000}")
+    private int chunkSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if(!legacyTableExists() || !schedulerLockService.tryLock(LOCK_NAME, Duration.ofMinutes(30))) {
+            return;
+        }
+        long copied = 0;
+        try {
+            while (true) {
+                Integer inserted = transactionTemplate.execute(status -> copyChunk());
+                if(inserted == null) {
+                    break;
+                }
+                copied += inserted;
+            }
+            restaurantLikeRepository.retireLegacyFavorites();
+            log.info("Migrated {} likes from user_favorites", copied);
+        } catch (DataAccessException e) {
+            //node khác vừa đổi tên bảng hoặc lỗi giữa chừng, lần khởi động sau chạy tiếp
+            log.warn("Legacy favorites migration stopped after {} likes", copied, e);
+        } finally {
+            schedulerLockService.unlock(LOCK_NAME);
+        }
+    }
+
+    //MySQL lưu tên bảng chữ thường, H2 chữ hoa
+    private boolean legacyTableExists() {
+        return Boolean.TRUE.equals(new JdbcTemplate(dataSource).execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String name : new String[]{"user_favorites", "USER_FAVORITES"}) {
+                try (ResultSet tables = metaData.getTables(connection.getCatalog(), connection.getSchema(), name, new String[]{"TABLE"})) {
+                    if(tables.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }));
+    }
+
+    private Integer copyChunk() {
+        List<Object[]> rows = restaurantLikeRepository.findLegacyFavorites(chunkSize);
+        if(rows.isEmpty()) {
+            return null;
+        }
+        Date now = new Date();
+        List<RestaurantLike> likes = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            likes.add(RestaurantLike.builder()
+                    .user(userRepository.getReferenceById(((Number) row[0]).longValue()))
+                    .restaurant(restaurantRepository.getReferenceById(((Number) row[1]).longValue()))
+                    .createdAt(now)
+                    .build());
+        }
+        restaurantLikeRepository.saveAll(likes);
+        return likes.size();
+    }
+}
@@ -0,0 +1,31 @@
+package com.dev.config;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/*
+ * Dữ liệu đưa vào cache (menu, identity) sống lâu hơn độ trễ replica nên phải đọc từ primary:
+ * trong transaction readOnly (đang/sẽ dùng connection replica) mở transaction mới không readOnly.
+ */
+@Component
+public class PrimaryReads {
+
+    private final TransactionTemplate requiresNew;
+
+    public PrimaryReads(PlatformTransactionManager transactionManager) {
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public <T> T get(Supplier<T> read) {
+        if(!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return read.get();
+        }
+        return requiresNew.execute(status -> read.get());
+    }
+}
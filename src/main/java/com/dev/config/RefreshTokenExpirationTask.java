@@ -0,0 +1,68 @@
+package com.dev.config;
+
+import com.dev.repository.TokenRepository;
+import com.dev.service.SchedulerLockService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+@Slf4j
+@Component
+public class RefreshTokenExpirationTask {
+    private static final String LOCK_NAME = "refresh-token-expiration";
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${auth.refresh.purge-chunk-size:1000}")
+    private int chunkSize;
+
+    //xóa refresh token hết hạn theo từng chunk, mỗi chunk 1 transaction ngắn để không khóa bảng lâu
+    @Scheduled(fixedDelayString = "${auth.refresh.purge-interval-ms:3600000}")
+    public void purgeExpiredTokens() {
+        if(!schedulerLockService.tryLock(LOCK_NAME, Duration.ofMinutes(30))) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long purged = 0;
+        try {
+            Date now = new Date();
+            while (true) {
+                Integer deleted = transactionTemplate.execute(status -> {
+                    List<Long> ids = tokenRepository.findExpiredIds(now, PageRequest.of(0, chunkSize));
+                    return ids.isEmpty() ? null : tokenRepository.deleteByIds(ids);
+                });
+                if(deleted == null) {
+                    break;
+                }
+                purged += deleted;
+            }
+        } finally {
+            sample.stop(meterRegistry.timer("auth.refresh.purge.duration"));
+            meterRegistry.counter("auth.refresh.purge.rows").increment(purged);
+            schedulerLockService.unlock(LOCK_NAME);
+        }
+        if(purged > 0) {
+            log.info("Purged {} expired refresh tokens", purged);
+        }
+    }
+}
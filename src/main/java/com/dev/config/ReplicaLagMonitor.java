@@ -0,0 +1,99 @@
+package com.dev.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/*
+ * Đo độ trễ replica bằng heartbeat: mỗi lần check ghi thời điểm hiện tại vào bảng replica_heartbeat trên primary
+ * rồi đọc giá trị đã replicate sang replica, lag = now - beat_at (gồm cả tối đa 1 chu kỳ check).
+ * Chưa đọc được heartbeat, lag > max-lag-ms hoặc replica lỗi -> replica không dùng được, mọi truy vấn vào primary.
+ * Metrics: datasource.replica.lag (ms, -1 khi chưa đo được), datasource.replica.available (0/1).
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+    static final String HEARTBEAT_TABLE = "replica_heartbeat";
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMs;
+    private volatile boolean available;
+    private volatile long lagMs = -1;
+    //chỉ thread scheduler đọc/ghi
+    private boolean heartbeatTableCreated;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, long maxLagMs, MeterRegistry meterRegistry) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.maxLagMs = maxLagMs;
+        Gauge.builder("datasource.replica.lag", this, monitor -> monitor.lagMs).baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder("datasource.replica.available", this, monitor -> monitor.available ? 1 : 0).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${spring.datasource.replica.lag-check-ms:1000}")
+    public void check() {
+        try {
+            writeHeartbeat();
+        } catch (DataAccessException e) {
+            log.warn("Write replica heartbeat failed", e);
+        }
+        Long beatAt;
+        try {
+            beatAt = replica.query("SELECT beat_at FROM " + HEARTBEAT_TABLE + " WHERE id = 1",
+                    resultSet -> resultSet.next() ? resultSet.getLong(1) : null);
+        } catch (DataAccessException e) {
+            markUnavailable(e);
+            return;
+        }
+        if(beatAt == null) {
+            setAvailable(false);
+            return;
+        }
+        lagMs = Math.max(0, System.currentTimeMillis() - beatAt);
+        setAvailable(lagMs <= maxLagMs);
+    }
+
+    public boolean isReplicaAvailable() {
+        return available;
+    }
+
+    public long getLagMs() {
+        return lagMs;
+    }
+
+    public void markUnavailable(Exception cause) {
+        if(available) {
+            log.warn("Replica unavailable, reading from primary", cause);
+        }
+        available = false;
+        lagMs = -1;
+    }
+
+    private void setAvailable(boolean available) {
+        if(this.available != available) {
+            log.warn("Replica {} (lag {} ms, max {} ms)", available ? "back in rotation" : "lagging, reading from primary", lagMs, maxLagMs);
+        }
+        this.available = available;
+    }
+
+    private void writeHeartbeat() {
+        if(!heartbeatTableCreated) {
+            primary.execute("CREATE TABLE IF NOT EXISTS " + HEARTBEAT_TABLE + " (id INT NOT NULL PRIMARY KEY, beat_at BIGINT NOT NULL)");
+            heartbeatTableCreated = true;
+        }
+        long now = System.currentTimeMillis();
+        if(primary.update("UPDATE " + HEARTBEAT_TABLE + " SET beat_at = ? WHERE id = 1", now) == 0) {
+            try {
+                primary.update("INSERT INTO " + HEARTBEAT_TABLE + " (id, beat_at) VALUES (1, ?)", now);
+            } catch (DuplicateKeyException ignored) {
+                //node khác vừa insert, lần check sau UPDATE
+            }
+        }
+    }
+}
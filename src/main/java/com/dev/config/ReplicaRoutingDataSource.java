@@ -0,0 +1,75 @@
+package com.dev.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/*
+ * Transaction readOnly -> replica, còn lại (ghi, không có transaction) -> primary.
+ * Replica trễ quá max-lag-ms hoặc không lấy được connection thì đọc từ primary.
+ * Phải bọc trong LazyConnectionDataSourceProxy: connection thật chỉ được lấy ở câu SQL đầu tiên,
+ * lúc đó cờ readOnly của transaction đã được set.
+ * Metrics: datasource.routing.connections{target}, datasource.replica.fallback{reason}.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaLagMonitor lagMonitor;
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+    private final Counter lagFallbacks;
+    private final Counter errorFallbacks;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.lagMonitor = lagMonitor;
+        this.primaryConnections = Counter.builder("datasource.routing.connections").tag("target", "primary").register(meterRegistry);
+        this.replicaConnections = Counter.builder("datasource.routing.connections").tag("target", "replica").register(meterRegistry);
+        this.lagFallbacks = Counter.builder("datasource.replica.fallback").tag("reason", "lag").register(meterRegistry);
+        this.errorFallbacks = Counter.builder("datasource.replica.fallback").tag("reason", "error").register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if(TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if(lagMonitor.isReplicaAvailable()) {
+                try {
+                    Connection connection = source.connect(replica);
+                    replicaConnections.increment();
+                    return connection;
+                } catch (SQLException e) {
+                    //replica chết giữa 2 lần check: bỏ replica tới lần check sau
+                    lagMonitor.markUnavailable(e);
+                    errorFallbacks.increment();
+                }
+            } else {
+                lagFallbacks.increment();
+            }
+        }
+        primaryConnections.increment();
+        return source.connect(primary);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+}
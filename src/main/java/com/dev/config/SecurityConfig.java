@@ -2,6 +2,8 @@ package com.dev.config;
 
 import com.dev.enums.ErrorEnum;
 import com.dev.exception.AppException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,7 +20,6 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
-import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtException;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
@@ -31,7 +32,6 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
-import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -44,6 +44,9 @@ public class SecurityConfig {
     @Value("${jwt.secret.access_token}")
     private String accessTokenSecret;
 
+    @Value("${jwt.cache.max-size:10000}")
+    private long jwtCacheMaxSize;
+
     private final String[] publicApi = {
             "/auth/login",
             "/auth/signup",
@@ -54,7 +57,7 @@ public class SecurityConfig {
     };
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtDecoder jwtDecoder) throws Exception {
         http.sessionManagement(sessionManagement ->
                sessionManagement.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
 
@@ -63,7 +66,7 @@ public class SecurityConfig {
                 .anyRequest().authenticated());
 
         http.oauth2ResourceServer(auth ->
-                auth.jwt(jwtConfigurer -> jwtConfigurer.decoder(jwtDecoder()).
+                auth.jwt(jwtConfigurer -> jwtConfigurer.decoder(jwtDecoder).
                         jwtAuthenticationConverter(jwtConverter())
                                 )
                         .authenticationEntryPoint(new JwtAuthenticationEntryPoint())
@@ -83,19 +86,16 @@ public class SecurityConfig {
         return converter;
     }
 
-    JwtDecoder jwtDecoder() {
+    //verify HMAC 1 lần cho mỗi token, các request sau dùng Jwt đã decode (CachingJwtDecoder)
+    @Bean
+    JwtDecoder jwtDecoder(MeterRegistry meterRegistry) {
         SecretKeySpec secretKey = new SecretKeySpec(accessTokenSecret.getBytes(), "HS512");
         NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.withSecretKey(secretKey)
                 .macAlgorithm(MacAlgorithm.HS512).build();
 
-        return token -> {
-            Jwt jwt = jwtDecoder.decode(token);
-            var expiresAt = jwt.getExpiresAt();
-            if(expiresAt != null && Instant.now().isAfter(expiresAt)) {
-                throw new JwtExpiredException("Jwt expired");
-            }
-            return jwt;
-        };
+        CachingJwtDecoder cachingJwtDecoder = new CachingJwtDecoder(jwtDecoder, jwtCacheMaxSize);
+        CaffeineCacheMetrics.monitor(meterRegistry, cachingJwtDecoder.getCache(), "jwt");
+        return cachingJwtDecoder;
     }
 
     @Bean
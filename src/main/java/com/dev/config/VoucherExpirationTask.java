@@ -1,27 +1,68 @@
 package com.dev.config;
 
-import com.dev.models.Event;
 import com.dev.repository.EventRepository;
+import com.dev.service.SchedulerLockService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
+@Slf4j
 @Component
 public class VoucherExpirationTask {
+    private static final String LOCK_NAME = "voucher-expiration";
+
     @Autowired
     private EventRepository eventRepository;
 
-    @Scheduled(cron = "0 0 0 * * ?") // Chạy mỗi ngày lúc nửa đêm
-    public void checkVoucherExpirations() {
-        LocalDateTime now = LocalDateTime.now();
-        List<Event> expiredVouchers = eventRepository.findAllByEndTimeBeforeAndActiveTrue(now);
+    @Autowired
+    private SchedulerLockService schedulerLockService;
 
-        for (Event event : expiredVouchers) {
-            event.setActive(false);
-            eventRepository.save(event);
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${event.expiration.chunk-size:500}")
+    private int chunkSize;
+
+    //chạy mỗi phút, mỗi chunk là 1 transaction ngắn với 1 câu UPDATE
+    @Scheduled(fixedDelayString = "${event.expiration.interval-ms:60000}")
+    public void checkVoucherExpirations() {
+        if(!schedulerLockService.tryLock(LOCK_NAME, Duration.ofMinutes(5))) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long expired = 0;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            while (true) {
+                Integer updated = transactionTemplate.execute(status -> {
+                    List<Long> ids = eventRepository.findExpiredActiveIds(now, PageRequest.of(0, chunkSize));
+                    return ids.isEmpty() ? null : eventRepository.deactivateByIds(ids);
+                });
+                if(updated == null) {
+                    break;
+                }
+                expired += updated;
+            }
+        } finally {
+            sample.stop(meterRegistry.timer("event.expiration.duration"));
+            meterRegistry.counter("event.expiration.rows").increment(expired);
+            schedulerLockService.unlock(LOCK_NAME);
+        }
+        if(expired > 0) {
+            log.info("Expired {} events", expired);
         }
     }
 }
@@ -56,8 +56,10 @@ public class AuthenticateController {
 
     @PostMapping("/logout")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseSuccess logout(){
-        var msg = authenticateService.logoutUser();
+    public ResponseSuccess logout(
+            @RequestBody(required = false) RefreshTokenRequest request
+    ){
+        var msg = authenticateService.logoutUser(request);
         return ResponseSuccess.builder()
                 .code(HttpStatus.OK.value())
                 .message(msg)
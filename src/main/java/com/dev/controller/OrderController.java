@@ -2,16 +2,21 @@ package com.dev.controller;
 
 import com.dev.core.ResponseSuccess;
 import com.dev.dto.request.AddCartItemRequest;
+import com.dev.dto.request.BulkUpdateStatusOrderRequest;
 import com.dev.dto.request.CreateOrderRequest;
 import com.dev.dto.request.UpdateQuantityCartItemRequest;
 import com.dev.dto.request.UpdateStatusOrderRequest;
 import com.dev.service.CartService;
+import com.dev.service.OrderIdempotency;
 import com.dev.service.OrderService;
+import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
@@ -20,11 +25,18 @@ import org.springframework.web.bind.annotation.*;
 public class OrderController {
 
     OrderService orderService;
+    OrderIdempotency orderIdempotency;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public ResponseSuccess createOrder(@RequestBody CreateOrderRequest request) {
-        var result= orderService.createOrder(request);
+    public ResponseSuccess createOrder(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody CreateOrderRequest request
+    ) {
+        //retry cùng Idempotency-Key trả lại order đã tạo, không chạy lại checkout
+        var result = idempotencyKey == null
+                ? orderService.createOrder(request, null)
+                : orderIdempotency.execute(idempotencyKey, key -> orderService.createOrder(request, key));
         return ResponseSuccess.builder()
                 .message("Create Order Success")
                 .metadata(result)
@@ -43,6 +55,18 @@ public class OrderController {
                 .build();
     }
 
+    //body: { orderIds: [...], status }, order sai trạng thái hoặc không thuộc nhà hàng được bỏ qua
+    @PostMapping("/status")
+    public ResponseSuccess updateStatusOrders(
+            @RequestBody @Valid BulkUpdateStatusOrderRequest request) {
+        var result = orderService.updateStatusOrders(request);
+        return ResponseSuccess.builder()
+                .message("Update Order Status Success")
+                .metadata(result)
+                .code(HttpStatus.OK.value())
+                .build();
+    }
+
     @PostMapping("/{id}/cancel")
     public ResponseSuccess cancelOrder(
             @PathVariable("id") Long id
@@ -66,6 +90,33 @@ public class OrderController {
                 .build();
     }
 
+    @GetMapping("/{status}/me/history")
+    public ResponseSuccess getOrdersMeHistory(
+            @PathVariable("status") int status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        var result= orderService.getOrderHistoryByUser(status, cursor, size);
+        return ResponseSuccess.builder()
+                .message("Get Orders History Success")
+                .metadata(result)
+                .code(HttpStatus.OK.value())
+                .build();
+    }
+
+    @GetMapping("/quote")
+    public ResponseSuccess getDeliveryQuote(
+            @RequestParam Long restaurantId,
+            @RequestParam Long addressId
+    ) {
+        var result = orderService.getDeliveryQuote(restaurantId, addressId);
+        return ResponseSuccess.builder()
+                .message("Get Delivery Quote Success")
+                .metadata(result)
+                .code(HttpStatus.OK.value())
+                .build();
+    }
+
     @GetMapping("/{id}")
     public ResponseSuccess getOrdersById(
             @PathVariable("id") Long orderId
@@ -89,4 +140,28 @@ public class OrderController {
                 .code(HttpStatus.OK.value())
                 .build();
     }
+
+    @GetMapping("/{status}/restaurant/board")
+    public ResponseSuccess getOrdersRestaurantBoard(
+            @PathVariable("status") int status,
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        var result= orderService.getOrderBoardByRestaurant(status, since, size);
+        return ResponseSuccess.builder()
+                .message("Get Restaurant Order Board Success")
+                .metadata(result)
+                .code(HttpStatus.OK.value())
+                .build();
+    }
+
+    @GetMapping(value = "/stream/restaurant", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrdersRestaurant() {
+        return orderService.streamRestaurantOrders();
+    }
+
+    @GetMapping(value = "/stream/me", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrdersMe() {
+        return orderService.streamMyOrders();
+    }
 }
@@ -127,11 +127,40 @@ public class RestaurantController {
                 .build();
     }
 
+    @GetMapping("/search/suggest")
+    public ResponseSuccess getSearchSuggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "8") String limit
+    ) {
+        var result = restaurantService.getSuggestions(prefix, Integer.parseInt(limit));
+        return ResponseSuccess.builder()
+                .message("Suggest success")
+                .code(HttpStatus.OK.value())
+                .metadata(result)
+                .build();
+    }
+
+    @GetMapping("/nearby")
+    public ResponseSuccess getRestaurantNearby(
+            @RequestParam(defaultValue = "5") String radiusKm,
+            @RequestParam(defaultValue = "1") String page,
+            @RequestParam(defaultValue = "10") String size
+    ) {
+        var result = restaurantService.getNearbyRestaurants(Double.parseDouble(radiusKm), Integer.parseInt(page), Integer.parseInt(size));
+        return ResponseSuccess.builder()
+                .message("Get nearby restaurant success")
+                .code(HttpStatus.OK.value())
+                .metadata(result)
+                .build();
+    }
+
     @GetMapping("/search")
     public ResponseSuccess getRestaurantSearch(
-            @RequestParam String key
+            @RequestParam String key,
+            @RequestParam(defaultValue = "1") String page,
+            @RequestParam(defaultValue = "10") String size
     ) {
-        var result = restaurantService.getRestaurantsBySearch(key);
+        var result = restaurantService.getRestaurantsBySearch(key, Integer.parseInt(page), Integer.parseInt(size));
         return ResponseSuccess.builder()
                 .message("Search restaurant success")
                 .code(HttpStatus.OK.value())
@@ -0,0 +1,17 @@
+package com.dev.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BulkUpdateStatusOrderRequest(
+        @NotEmpty(message = "Order ids must be required")
+        @Size(max = 200, message = "At most 200 orders per request")
+        List<Long> orderIds,
+
+        @NotNull(message = "Status must be required")
+        Integer status
+) {
+}
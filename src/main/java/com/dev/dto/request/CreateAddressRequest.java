@@ -1,5 +1,7 @@
 package com.dev.dto.request;
 
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 
 public record CreateAddressRequest(
@@ -25,6 +27,14 @@ public record CreateAddressRequest(
         String postalCode,
 
         @NotBlank(message = "Phone is required")
-        String phone
+        String phone,
+
+        @DecimalMin(value = "-90", message = "Latitude is invalid")
+        @DecimalMax(value = "90", message = "Latitude is invalid")
+        Double latitude,
+
+        @DecimalMin(value = "-180", message = "Longitude is invalid")
+        @DecimalMax(value = "180", message = "Longitude is invalid")
+        Double longitude
 ) {
 }
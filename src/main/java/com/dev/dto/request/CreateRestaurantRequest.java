@@ -1,6 +1,8 @@
 package com.dev.dto.request;
 
 import com.dev.models.ContactInfo;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
@@ -47,6 +49,14 @@ public record CreateRestaurantRequest(
         String city,
 
         @NotBlank(message = "Postalcode not empty")
-        String postalCode
+        String postalCode,
+
+        @DecimalMin(value = "-90", message = "Latitude is invalid")
+        @DecimalMax(value = "90", message = "Latitude is invalid")
+        Double latitude,
+
+        @DecimalMin(value = "-180", message = "Longitude is invalid")
+        @DecimalMax(value = "180", message = "Longitude is invalid")
+        Double longitude
 ) {
 }
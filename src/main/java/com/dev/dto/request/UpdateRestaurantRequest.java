@@ -1,5 +1,7 @@
 package com.dev.dto.request;
 
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 
@@ -32,6 +34,10 @@ public record UpdateRestaurantRequest(
 
         Optional<String> city,
 
-        Optional<String> postalCode
+        Optional<String> postalCode,
+
+        Optional<@DecimalMin(value = "-90", message = "Latitude is invalid") @DecimalMax(value = "90", message = "Latitude is invalid") Double> latitude,
+
+        Optional<@DecimalMin(value = "-180", message = "Longitude is invalid") @DecimalMax(value = "180", message = "Longitude is invalid") Double> longitude
 ) {
 }
@@ -24,6 +24,10 @@ public class AddressResponse {
 
     String postalCode;
 
+    Double latitude;
+
+    Double longitude;
+
     String phone;
 
     Boolean addressDefault;
@@ -0,0 +1,14 @@
+package com.dev.dto.response;
+
+import com.dev.enums.OrderStatus;
+
+import java.util.List;
+
+//updatedIds: các order đã chuyển trạng thái, id còn lại là sai trạng thái hoặc không thuộc nhà hàng
+public record BulkUpdateStatusOrderResponse(
+        OrderStatus status,
+        int requested,
+        int updated,
+        List<Long> updatedIds
+) {
+}
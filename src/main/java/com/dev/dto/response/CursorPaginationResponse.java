@@ -0,0 +1,13 @@
+package com.dev.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class CursorPaginationResponse {
+    Object content;
+    String nextCursor;
+    boolean hasNext;
+    int size;
+}
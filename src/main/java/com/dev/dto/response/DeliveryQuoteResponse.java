@@ -0,0 +1,18 @@
+package com.dev.dto.response;
+
+import lombok.Builder;
+
+//ước tính phí ship và thời gian giao cho 1 cặp nhà hàng - địa chỉ, thời gian tính bằng phút
+@Builder
+public record DeliveryQuoteResponse(
+        Long restaurantId,
+        Long addressId,
+        double distanceKm,
+        long deliveryFee,
+        long queueDepth,
+        int prepMinutes,
+        int travelMinutes,
+        int etaMinutes,
+        int etaMaxMinutes
+) {
+}
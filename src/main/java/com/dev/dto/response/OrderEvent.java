@@ -0,0 +1,27 @@
+package com.dev.dto.response;
+
+import com.dev.enums.OrderStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+
+import java.util.Date;
+
+//delta gửi qua SSE, chỉ chứa những gì client cần để cập nhật danh sách
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OrderEvent(
+        String type,
+        Long orderId,
+        @JsonIgnore Long restaurantId,
+        @JsonIgnore Long customerId,
+        OrderStatus orderStatus,
+        Long totalPrice,
+        Integer totalItem,
+        Date createdAt,
+        @JsonIgnore Date confirmedAt,
+        Date at
+) {
+    public static final String CREATED = "ORDER_CREATED";
+    public static final String STATUS_CHANGED = "ORDER_STATUS_CHANGED";
+}
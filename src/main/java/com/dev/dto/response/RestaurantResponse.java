@@ -27,5 +27,7 @@ public class RestaurantResponse{
     Boolean open;
     Long likes;
     Boolean isLikeUser;
+    //chỉ có ở api nearby
+    Double distanceKm;
 }
 
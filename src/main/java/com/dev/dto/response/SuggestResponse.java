@@ -0,0 +1,12 @@
+package com.dev.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+public record SuggestResponse(List<Item> restaurants, List<Item> foods) {
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Item(Long id, String name, Long restaurantId) {
+    }
+}
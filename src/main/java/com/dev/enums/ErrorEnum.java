@@ -9,6 +9,7 @@ import lombok.Getter;
 public enum ErrorEnum {
     USER_EXIST(400,"User already exists"),
     FAILED_LOGIN(401,"Login failed"),
+    TOO_MANY_LOGIN_REQUESTS(429,"Too many login requests, please try again later"),
     NOT_FOUND_USER(404,"User not found"),
     UNAUTHENTICATED(401, "Unauthenticated"),
     TOKEN_EXPIRE(401, "Token is expired"),
@@ -16,6 +17,8 @@ public enum ErrorEnum {
     USER_CREATED_RES(400,"User created restaurant"),
     RES_ADDRESS_EXIST(400,"Address of restaurant is exist"),
     RES_FILE_IMAGES(400,"Image files not found"),
+    IMAGE_UPLOAD_FAILED(502,"Upload image failed"),
+    IMAGE_UPLOAD_BUSY(503,"Too many image uploads, please try again later"),
     RES_NOT_FOUND(400,"Restaurant not found"),
     RES_DISABLE(403,"Restaurant is disabled"),
     CATEGORY_FOOD_EXIST(400,"Category food is exist"),
@@ -40,9 +43,17 @@ public enum ErrorEnum {
     ADDRESS_NOT_FOUND(404,"Address not found"),
     ADDRESS_EXIST(400,"Address is exist"),
     ADDRESS_DEFAULT_NOT_FOUND(404,"Address default not found"),
+    LOCATION_INVALID(400,"Latitude and longitude must be sent together"),
+    ADDRESS_LOCATION_MISSING(400,"Address default has no location"),
+    DELIVERY_LOCATION_MISSING(400,"Restaurant or address has no location"),
+    DELIVERY_OUT_OF_RANGE(400,"Address is out of delivery range"),
     ORDER_NOT_FOUND(404,"Order not found"),
     ORDER_STATUS_INVALID(400,"Order status is invalid"),
     ORDER_HAS_CONFIRMED(400,"Order has confirmed"),
+    ORDER_CURSOR_INVALID(400,"Order cursor is invalid"),
+    ORDER_RESTAURANT_MISMATCH(400,"Cart items do not belong to this restaurant"),
+    IDEMPOTENCY_KEY_INVALID(400,"Idempotency-Key is invalid"),
+    IDEMPOTENCY_KEY_IN_PROGRESS(409,"A request with this Idempotency-Key is still in progress"),
     FOOD_HAS_VOUCHER(400,"Food has applied to voucher"),
     EVENT_TIME_INVALID(400,"Event time is invalid"),
     EVENT_NOT_FOUND(404,"Event not found")
@@ -1,5 +1,8 @@
 package com.dev.enums;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum OrderStatus {
     PENDING(0),
     CONFIRMED(1),
@@ -24,4 +27,16 @@ public enum OrderStatus {
     public int getValue() {
         return value;
     }
+
+    //các trạng thái được chuyển sang this: PENDING -> CONFIRMED -> SHIPPING -> DELIVERED,
+    //CANCELLED khi chưa giao (khách chỉ được hủy lúc PENDING, xem OrderService.cancelOrder)
+    public Set<OrderStatus> allowedFrom() {
+        return switch (this) {
+            case PENDING -> EnumSet.noneOf(OrderStatus.class);
+            case CONFIRMED -> EnumSet.of(PENDING);
+            case SHIPPING -> EnumSet.of(CONFIRMED);
+            case DELIVERED -> EnumSet.of(SHIPPING);
+            case CANCELLED -> EnumSet.of(PENDING, CONFIRMED);
+        };
+    }
 }
@@ -20,7 +20,8 @@ import java.util.Set;
 @Builder
 public class Address {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "address_seq")
+    @SequenceGenerator(name = "address_seq", sequenceName = "address_seq", allocationSize = 50)
     Long id;
 
     String numberStreet;
@@ -35,6 +36,11 @@ public class Address {
 
     String postalCode;
 
+    //tọa độ WGS84, địa chỉ cũ chưa có thì null
+    Double latitude;
+
+    Double longitude;
+
     @Column(name = "customer_phone")
     String customerPhone;
 
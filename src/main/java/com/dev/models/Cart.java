@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.HashSet;
 import java.util.Iterator;
@@ -24,6 +25,11 @@ public class Cart {
 
     Long totalPrice = 0L;
 
+    //tăng mỗi lần cart được ghi xuống DB; CartPersister chỉ ghi khi version chưa đổi từ lúc load
+    @Version
+    @ColumnDefault("0")
+    Long version;
+
     @MapsId
     @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id")
@@ -17,9 +17,12 @@ import java.util.Set;
 @Entity
 public class CartItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_item_seq")
+    @SequenceGenerator(name = "cart_item_seq", sequenceName = "cart_item_seq", allocationSize = 50)
     Long id;
 
+    //id dòng trong LiveCart mà client giữ (cartItemId), giữ nguyên qua các lần CartPersister ghi lại item
+    Long lineNo;
 
     Integer quantity;
     Long totalPrice;
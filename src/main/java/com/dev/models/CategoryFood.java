@@ -19,7 +19,8 @@ import java.util.Set;
 @Entity
 public class CategoryFood {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_food_seq")
+    @SequenceGenerator(name = "category_food_seq", sequenceName = "category_food_seq", allocationSize = 50)
     Long id;
 
     //@Column(unique = true)
@@ -18,7 +18,8 @@ import java.util.Set;
 @Entity
 public class CategoryIngredient {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_ingredient_seq")
+    @SequenceGenerator(name = "category_ingredient_seq", sequenceName = "category_ingredient_seq", allocationSize = 50)
     Long id;
 
     //@Column(unique = true)
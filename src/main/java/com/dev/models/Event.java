@@ -21,9 +21,11 @@ import java.util.Set;
 @Entity
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Builder
+@Table(indexes = @Index(name = "idx_event_active_end", columnList = "active, endTime"))
 public class Event {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "event_seq")
+    @SequenceGenerator(name = "event_seq", sequenceName = "event_seq", allocationSize = 50)
     Long id;
 
     private String code;
@@ -20,7 +20,8 @@ import java.util.Set;
 @Entity
 public class Food {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "food_seq")
+    @SequenceGenerator(name = "food_seq", sequenceName = "food_seq", allocationSize = 50)
     Long id;
 
     String name;
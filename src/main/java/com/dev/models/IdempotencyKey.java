@@ -0,0 +1,40 @@
+package com.dev.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Persistable;
+
+import java.util.Date;
+
+//key của request tạo order, lưu cùng transaction với order để restart vẫn trả lại đúng response cũ
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Builder
+@Entity
+@Table(indexes = @Index(columnList = "expiresAt"))
+public class IdempotencyKey implements Persistable<String> {
+    //sha-256(email + ":" + Idempotency-Key), 2 user gửi cùng key không đụng nhau
+    @Id
+    @Column(length = 64)
+    String id;
+
+    Long orderId;
+
+    //OrderResponse dạng json
+    @Lob
+    String response;
+
+    Date createdAt;
+
+    Date expiresAt;
+
+    //id tự gán: luôn insert (persist) thay vì merge, key trùng phải bị PK chặn chứ không ghi đè response cũ
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -17,7 +17,8 @@ import java.util.Set;
 @Builder
 public class IngredientItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ingredient_item_seq")
+    @SequenceGenerator(name = "ingredient_item_seq", sequenceName = "ingredient_item_seq", allocationSize = 50)
     long id;
 
     String name;
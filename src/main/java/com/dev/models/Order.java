@@ -18,10 +18,16 @@ import java.util.Set;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
 @Builder
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_customer_status_created", columnList = "customer_id, orderStatus, createdAt"),
+        @Index(name = "idx_orders_restaurant_status_created", columnList = "restaurant_id, orderStatus, createdAt"),
+        @Index(name = "idx_orders_restaurant_shipped", columnList = "restaurant_id, shippedAt")
+})
 public class Order {
+    //pooled: 1 lần lấy sequence cho 50 id, tên trùng với sequence Hibernate đã tạo cho AUTO
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     Long id;
 
 
@@ -42,6 +48,11 @@ public class Order {
     Long totalPrice;
     OrderStatus orderStatus;
     Date createdAt;
+    //lần đổi trạng thái gần nhất, dùng để lấy lại đúng các order vừa được UPDATE chuyển trạng thái
+    Date statusUpdatedAt;
+    //thời điểm nhà hàng nhận đơn và giao cho shipper, dùng để tính thời gian chuẩn bị (DeliveryEstimator)
+    Date confirmedAt;
+    Date shippedAt;
 
     PaymentEnum payment;
 
@@ -0,0 +1,36 @@
+package com.dev.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Date;
+
+//1 dòng cho mỗi lượt like, unique (user_id, restaurant_id) để like trùng bị DB chặn
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Builder
+@Entity
+@Table(
+        uniqueConstraints = @UniqueConstraint(name = "uk_restaurant_like_user_restaurant", columnNames = {"user_id", "restaurant_id"}),
+        indexes = @Index(columnList = "restaurant_id")
+)
+public class RestaurantLike {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "restaurant_like_seq")
+    @SequenceGenerator(name = "restaurant_like_seq", sequenceName = "restaurant_like_seq", allocationSize = 50)
+    Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "restaurant_id")
+    Restaurant restaurant;
+
+    Date createdAt;
+}
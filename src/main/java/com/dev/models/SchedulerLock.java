@@ -0,0 +1,25 @@
+package com.dev.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+
+//1 dòng cho mỗi job @Scheduled, node nào giữ lockedUntil còn hạn thì node đó chạy job
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Builder
+public class SchedulerLock {
+    @Id
+    String name;
+
+    Instant lockedUntil;
+
+    String lockedBy;
+}
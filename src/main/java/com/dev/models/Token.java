@@ -4,22 +4,38 @@ import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
-@Data
+import java.util.Date;
+
+//1 dòng cho mỗi thiết bị đăng nhập, chỉ lưu SHA-256 (hex) của refresh token
+@Getter
+@Setter
 @AllArgsConstructor
 @NoArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
 @Builder
-@Table(indexes = @Index(columnList = "refreshToken"))
+@Table(
+        name = "refresh_token",
+        uniqueConstraints = @UniqueConstraint(name = "uk_refresh_token_hash", columnNames = "token_hash"),
+        indexes = {
+                @Index(columnList = "user_id"),
+                @Index(columnList = "expiresAt")
+        }
+)
 public class Token {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "refresh_token_seq")
+    @SequenceGenerator(name = "refresh_token_seq", sequenceName = "refresh_token_seq", allocationSize = 50)
     Long id;
 
-    @Column(name = "refresh_token")
-    String refreshToken;
+    @Column(name = "token_hash", length = 64, nullable = false)
+    String tokenHash;
 
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     User user;
+
+    Date createdAt;
+
+    Date expiresAt;
 }
@@ -19,7 +19,8 @@ import java.util.Set;
 @Table(indexes = @Index(columnList = "email"))
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "user_seq", allocationSize = 50)
     Long id;
 
     String fullName;
@@ -35,14 +36,6 @@ public class User {
     @OneToMany(mappedBy = "customer",cascade = CascadeType.ALL,orphanRemoval = true)
     Set<Order> orders = new HashSet<>();
 
-
-    @ElementCollection
-    Set<RestaurantDto> favorites = new HashSet<>();
-
-    public void removeFavorite(Long id) {
-        this.favorites.removeIf(favorite -> favorite.getId().equals(id));
-    }
-
     public void addAddress(Address address) {
         this.addresses.add(address);
         address.setCustomer(this);
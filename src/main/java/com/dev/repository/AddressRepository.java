@@ -9,4 +9,8 @@ import java.util.Optional;
 public interface AddressRepository extends JpaRepository<Address, Long> {
 
     Boolean existsByCityAndDistrictAndWardAndStreetAndNumberStreet(String city,String district,String ward,String street,String numberStreet);
+
+    Optional<Address> findFirstByCustomerIdAndCustomerDefaultTrue(Long customerId);
+
+    Optional<Address> findByIdAndCustomerId(Long id, Long customerId);
 }
@@ -3,9 +3,27 @@ package com.dev.repository;
 import com.dev.models.Cart;
 import com.dev.models.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 
+    @Query("SELECT DISTINCT ci FROM CartItem ci JOIN FETCH ci.food f JOIN FETCH f.restaurant LEFT JOIN FETCH f.images " +
+            "LEFT JOIN FETCH ci.ingredients WHERE ci.cart.id = :cartId")
+    List<CartItem> findByCartIdWithFood(Long cartId);
+
+    //bảng nối không được JPQL bulk delete tự xóa nên phải xóa trước
+    @Modifying
+    @Query(value = "DELETE FROM cart_item_ingredient WHERE cart_item_id IN (SELECT id FROM cart_item WHERE cart_id IN :cartIds)",
+            nativeQuery = true)
+    int deleteIngredientLinksByCartIds(Collection<Long> cartIds);
+
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id IN :cartIds")
+    int deleteByCartIds(Collection<Long> cartIds);
 }
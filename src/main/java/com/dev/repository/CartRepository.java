@@ -2,7 +2,10 @@ package com.dev.repository;
 
 import com.dev.models.Cart;
 import com.dev.models.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -12,4 +15,18 @@ import java.util.Optional;
 public interface CartRepository extends JpaRepository<Cart, Long> {
     @Query("SELECT c FROM Cart c LEFT JOIN FETCH c.cartItems WHERE c.id=:id")
     Optional<Cart> findByIdWithCartItem(Long id);
+
+    //khóa row cart tới hết transaction, các node khác sửa cùng cart phải chờ
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cart c WHERE c.id = :id")
+    Optional<Cart> findByIdForUpdate(Long id);
+
+    //row cũ trước khi có cột version có thể null, coi như 0
+    @Query("SELECT COALESCE(c.version, 0) FROM Cart c WHERE c.id = :id")
+    Optional<Long> findVersionById(Long id);
+
+    //ghi tổng từ CartStore, chỉ ghi khi version trong DB còn bằng version lúc load; trả về 0 nếu đã có bản mới hơn
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalPrice = :totalPrice, c.version = :version + 1 WHERE c.id = :id AND COALESCE(c.version, 0) = :version")
+    int updateTotalPrice(Long id, Long totalPrice, long version);
 }
@@ -2,11 +2,23 @@ package com.dev.repository;
 
 import com.dev.models.CategoryFood;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CategoryFoodRepository extends JpaRepository<CategoryFood,Long> {
     Optional<CategoryFood> findByName(String name);
+
+    @Query("SELECT c FROM CategoryFood c WHERE c.restaurant.id = :restaurantId ORDER BY c.name")
+    List<CategoryFood> findByRestaurantId(Long restaurantId);
+
+    //[restaurantId, tên category] cho search index
+    @Query("SELECT c.restaurant.id, c.name FROM CategoryFood c")
+    List<Object[]> findSearchableNames();
+
+    @Query("SELECT c.restaurant.id, c.name FROM CategoryFood c WHERE c.restaurant.id = :restaurantId")
+    List<Object[]> findSearchableNamesByRestaurantId(Long restaurantId);
 }
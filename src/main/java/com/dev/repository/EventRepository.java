@@ -1,13 +1,28 @@
 package com.dev.repository;
 
 import com.dev.models.Event;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface EventRepository extends JpaRepository<Event, Long> {
-    List<Event> findAllByEndTimeBeforeAndActiveTrue(LocalDateTime dateTime);
+    @Query("SELECT e.id FROM Event e WHERE e.active = true AND e.endTime < :now ORDER BY e.id")
+    List<Long> findExpiredActiveIds(LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Event e SET e.active = false WHERE e.id IN :ids AND e.active = true")
+    int deactivateByIds(List<Long> ids);
+
+    @Query("SELECT DISTINCT e FROM Event e LEFT JOIN FETCH e.foods WHERE e.active = true AND e.endTime > :now")
+    List<Event> findUpcomingWithFoods(LocalDateTime now);
+
+    @Query("SELECT e FROM Event e LEFT JOIN FETCH e.foods WHERE e.id = :id")
+    Optional<Event> findByIdWithFoods(Long id);
 }
@@ -4,6 +4,7 @@ import com.dev.models.Food;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -18,6 +19,31 @@ public interface FoodRepository extends JpaRepository<Food,Long> {
     @Query("SELECT f FROM Food f LEFT JOIN f.restaurant i WHERE f.id = :id")
     Optional<Food> findByIdWithRestaurant(long id);
 
+    @Query("SELECT f FROM Food f JOIN FETCH f.restaurant LEFT JOIN FETCH f.images WHERE f.id = :id")
+    Optional<Food> findByIdForCart(Long id);
+
+    //checkout: food + restaurant + ảnh + ingredient của mọi dòng trong cart trong 1 câu query
+    @Query("SELECT DISTINCT f FROM Food f JOIN FETCH f.restaurant LEFT JOIN FETCH f.images LEFT JOIN FETCH f.ingredients WHERE f.id IN :ids")
+    List<Food> findAllForCheckout(Collection<Long> ids);
+
     @Query("SELECT f from Food f LEFT JOIN f.event e WHERE f IN :ids")
     List<Food> findByListFoodId(Set<Long> ids);
+
+    @Query("SELECT DISTINCT f FROM Food f LEFT JOIN FETCH f.categoryFood LEFT JOIN FETCH f.images WHERE f.restaurant.id = :restaurantId")
+    List<Food> findMenuByRestaurantId(Long restaurantId);
+
+    //[foodId, số ingredient]
+    @Query("SELECT f.id, COUNT(i) FROM Food f JOIN f.ingredients i WHERE f.restaurant.id = :restaurantId GROUP BY f.id")
+    List<Object[]> countIngredientsByRestaurantId(Long restaurantId);
+
+    //[restaurantId, tên món] cho search index
+    @Query("SELECT f.restaurant.id, f.name FROM Food f WHERE f.disable = false")
+    List<Object[]> findSearchableNames();
+
+    @Query("SELECT f.restaurant.id, f.name FROM Food f WHERE f.disable = false AND f.restaurant.id = :restaurantId")
+    List<Object[]> findSearchableNamesByRestaurantId(Long restaurantId);
+
+    //[foodId, tên món, restaurantId] cho autocomplete, số lượng đã đặt lấy riêng (OrderItemRepository.sumQuantityByFood)
+    @Query("SELECT f.id, f.name, r.id FROM Food f JOIN f.restaurant r WHERE f.disable = false AND r.disable = false")
+    List<Object[]> findSuggestRows();
 }
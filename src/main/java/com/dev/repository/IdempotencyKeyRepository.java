@@ -0,0 +1,22 @@
+package com.dev.repository;
+
+import com.dev.models.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+    @Query("SELECT k FROM IdempotencyKey k WHERE k.id = :id AND k.expiresAt > :now")
+    Optional<IdempotencyKey> findValidById(String id, Date now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.expiresAt <= :now")
+    int deleteExpired(Date now);
+}
@@ -2,8 +2,23 @@ package com.dev.repository;
 
 import com.dev.models.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    @Query("SELECT DISTINCT oi FROM OrderItem oi JOIN FETCH oi.food f LEFT JOIN FETCH f.images WHERE oi.order.id IN :orderIds")
+    List<OrderItem> findByOrderIdsWithFood(Collection<Long> orderIds);
+
+    //[orderItemId, IngredientItem]
+    @Query("SELECT oi.id, i FROM OrderItem oi JOIN oi.ingredients i WHERE oi.id IN :orderItemIds")
+    List<Object[]> findIngredientsByOrderItemIds(Collection<Long> orderItemIds);
+
+    //[foodId, tổng số lượng đã đặt], quét cả bảng nên chỉ gọi theo search.suggest.popularity-refresh-ms
+    @Query("SELECT oi.food.id, SUM(oi.quantity) FROM OrderItem oi GROUP BY oi.food.id")
+    List<Object[]> sumQuantityByFood();
 }
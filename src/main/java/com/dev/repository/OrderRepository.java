@@ -1,9 +1,98 @@
 package com.dev.repository;
 
+import com.dev.dto.response.OrderOptimizeResponse;
+import com.dev.enums.OrderStatus;
 import com.dev.models.Order;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface OrderRepository extends JpaRepository<Order,Long> {
+
+    @Query("SELECT new com.dev.dto.response.OrderOptimizeResponse(o.id, r.name, o.totalPrice, o.orderStatus, o.createdAt) " +
+            "FROM Order o JOIN o.restaurant r " +
+            "WHERE o.customer.id = :customerId " +
+            "AND (:status IS NULL OR o.orderStatus = :status) " +
+            "AND (:cursorCreatedAt IS NULL OR o.createdAt < :cursorCreatedAt " +
+            "     OR (o.createdAt = :cursorCreatedAt AND o.id < :cursorId)) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderOptimizeResponse> findHistoryByCustomer(
+            Long customerId,
+            OrderStatus status,
+            Date cursorCreatedAt,
+            Long cursorId,
+            Pageable pageable
+    );
+
+    @Query("SELECT o FROM Order o JOIN FETCH o.customer JOIN FETCH o.address " +
+            "WHERE o.restaurant.id = :restaurantId " +
+            "AND (:status IS NULL OR o.orderStatus = :status) " +
+            "AND (:sinceCreatedAt IS NULL OR o.createdAt > :sinceCreatedAt " +
+            "     OR (o.createdAt = :sinceCreatedAt AND o.id > :sinceId)) " +
+            "ORDER BY o.createdAt ASC, o.id ASC")
+    List<Order> findBoardByRestaurant(
+            Long restaurantId,
+            OrderStatus status,
+            Date sinceCreatedAt,
+            Long sinceId,
+            Pageable pageable
+    );
+
+    @Query("SELECT o FROM Order o JOIN FETCH o.customer JOIN FETCH o.address " +
+            "WHERE o.restaurant.id = :restaurantId " +
+            "AND (:status IS NULL OR o.orderStatus = :status) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findAllByRestaurant(Long restaurantId, OrderStatus status);
+
+    //chuyển trạng thái trong 1 câu UPDATE, điều kiện trạng thái nằm trong WHERE nên 2 request tranh nhau chỉ 1 cái thắng
+    //restaurantEmail/customerEmail != null: chỉ order của nhà hàng/khách đó
+    //confirmedAt/shippedAt: thời điểm chuyển sang CONFIRMED/SHIPPING, null thì giữ giá trị cũ
+    @Modifying
+    @Query("UPDATE Order o SET o.orderStatus = :target, o.statusUpdatedAt = :now, " +
+            "o.confirmedAt = COALESCE(:confirmedAt, o.confirmedAt), o.shippedAt = COALESCE(:shippedAt, o.shippedAt) " +
+            "WHERE o.id IN :ids AND o.orderStatus IN :from " +
+            "AND (:restaurantEmail IS NULL OR o.restaurant.id IN " +
+            "     (SELECT r.id FROM Restaurant r WHERE r.owner.email = :restaurantEmail)) " +
+            "AND (:customerEmail IS NULL OR o.customer.id IN " +
+            "     (SELECT u.id FROM User u WHERE u.email = :customerEmail))")
+    int transitionStatus(
+            Collection<Long> ids,
+            OrderStatus target,
+            Collection<OrderStatus> from,
+            String restaurantEmail,
+            String customerEmail,
+            Date now,
+            Date confirmedAt,
+            Date shippedAt
+    );
+
+    //[id, restaurantId, customerId, createdAt, confirmedAt] của các order vừa chuyển sang status lúc statusUpdatedAt
+    @Query("SELECT o.id, o.restaurant.id, o.customer.id, o.createdAt, o.confirmedAt FROM Order o " +
+            "WHERE o.id IN :ids AND o.orderStatus = :status AND o.statusUpdatedAt = :statusUpdatedAt")
+    List<Object[]> findTransitioned(Collection<Long> ids, OrderStatus status, Date statusUpdatedAt);
+
+    @Query("SELECT o.orderStatus FROM Order o " +
+            "WHERE o.id = :id " +
+            "AND (:restaurantEmail IS NULL OR o.restaurant.owner.email = :restaurantEmail) " +
+            "AND (:customerEmail IS NULL OR o.customer.email = :customerEmail)")
+    Optional<OrderStatus> findStatus(Long id, String restaurantEmail, String customerEmail);
+
+    long countByRestaurantIdAndOrderStatusIn(Long restaurantId, Collection<OrderStatus> statuses);
+
+    //[createdAt, confirmedAt, shippedAt] của các order đã giao cho shipper gần nhất, mới nhất trước
+    @Query("SELECT o.createdAt, o.confirmedAt, o.shippedAt FROM Order o " +
+            "WHERE o.restaurant.id = :restaurantId AND o.shippedAt IS NOT NULL ORDER BY o.shippedAt DESC")
+    List<Object[]> findRecentPrepTimes(Long restaurantId, Pageable pageable);
+
+    //[restaurantId, số đơn], quét cả bảng nên chỉ gọi theo search.suggest.popularity-refresh-ms
+    @Query("SELECT o.restaurant.id, COUNT(o) FROM Order o GROUP BY o.restaurant.id")
+    List<Object[]> countByRestaurant();
 }
@@ -0,0 +1,36 @@
+package com.dev.repository;
+
+import com.dev.models.RestaurantLike;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+public interface RestaurantLikeRepository extends JpaRepository<RestaurantLike, Long> {
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RestaurantLike l WHERE l.user.id = :userId AND l.restaurant.id = :restaurantId")
+    int deleteByUserIdAndRestaurantId(Long userId, Long restaurantId);
+
+    @Query("SELECT l.restaurant.id FROM RestaurantLike l WHERE l.user.id = :userId AND l.restaurant.id IN :restaurantIds")
+    Set<Long> findLikedRestaurantIds(Long userId, Collection<Long> restaurantIds);
+
+    //[userId, restaurantId] trong bảng cũ user_favorites (@ElementCollection User.favorites) chưa có trong restaurant_like
+    @Query(value = "SELECT DISTINCT f.user_id, f.id FROM user_favorites f JOIN restaurant r ON r.id = f.id " +
+            "WHERE NOT EXISTS (SELECT 1 FROM restaurant_like l WHERE l.user_id = f.user_id AND l.restaurant_id = f.id) " +
+            "LIMIT :limit", nativeQuery = true)
+    List<Object[]> findLegacyFavorites(int limit);
+
+    //đổi tên thay vì xóa: không chạy lại migration (unlike sau khi chuyển không bị khôi phục) mà vẫn giữ dữ liệu gốc
+    @Transactional
+    @Modifying
+    @Query(value = "ALTER TABLE user_favorites RENAME TO user_favorites_migrated", nativeQuery = true)
+    void retireLegacyFavorites();
+}
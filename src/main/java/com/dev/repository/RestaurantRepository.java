@@ -6,11 +6,12 @@ import com.dev.models.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -39,19 +40,60 @@ public interface RestaurantRepository extends JpaRepository<Restaurant, Long> {
     Page<Restaurant> fetchByRestaurantCreated(Pageable pageable);
 
 
-    @Query("SELECT r from Restaurant r where (lower(r.name) like concat('%',lower(:s),'%') or lower(r.cuisineType) like concat('%',lower(:s),'%')) and r.disable = false ")
-    List<Restaurant> findRestaurantBySearch(String s);
-
-
     @Query("SELECT r from Restaurant r JOIN FETCH r.categoryFoods c where r.id = :id order by c.name")
     Optional<Restaurant> findRestaurantWithCategory(Long id);
 
-    @Query("SELECT r from Restaurant r JOIN FETCH r.owner o LEFT JOIN FETCH r.orders or left Join or.customer  where o.email = :email")
-    Optional<Restaurant> findRestaurantByEmailWithOrders(String email);
+    //[id, name, cuisineType] của các nhà hàng được phép search
+    @Query("SELECT r.id, r.name, r.cuisineType FROM Restaurant r WHERE r.createdAt IS NOT NULL AND r.disable = false")
+    List<Object[]> findSearchableRows();
+
+    @Query("SELECT r.id, r.name, r.cuisineType FROM Restaurant r WHERE r.id = :id AND r.createdAt IS NOT NULL AND r.disable = false")
+    List<Object[]> findSearchableRowById(Long id);
+
+    @Modifying
+    @Query("UPDATE Restaurant r SET r.likes = COALESCE(r.likes, 0) + :delta WHERE r.id = :id")
+    int addLikes(Long id, Long delta);
+
+    @Query("SELECT DISTINCT r FROM Restaurant r LEFT JOIN FETCH r.images " +
+            "WHERE r.id IN (SELECT l.restaurant.id FROM RestaurantLike l WHERE l.user.id = :userId)")
+    List<Restaurant> findLikedByUserId(Long userId);
+
+    //[id, name, likes] cho autocomplete, số đơn lấy riêng (OrderRepository.countByRestaurant)
+    @Query("SELECT r.id, r.name, r.likes FROM Restaurant r WHERE r.createdAt IS NOT NULL AND r.disable = false")
+    List<Object[]> findSuggestRows();
+
+    @Query("SELECT DISTINCT r FROM Restaurant r JOIN FETCH r.owner LEFT JOIN FETCH r.address LEFT JOIN FETCH r.images WHERE r.id IN :ids")
+    List<Restaurant> findAllForListingByIdIn(Collection<Long> ids);
+
+    //id các nhà hàng hiển thị ở trang danh sách, theo thứ tự id
+    @Query("SELECT r.id FROM Restaurant r WHERE r.createdAt IS NOT NULL AND r.disable = false ORDER BY r.id")
+    List<Long> findListedIds();
+
+    boolean existsByIdAndCreatedAtIsNotNullAndDisableFalse(Long id);
+
+    //[id, name, description, cuisineType, openHours, isOpen, likes, createdAt, contactInfo, tên owner,
+    // address: id, numberStreet, street, ward, district, city, postalCode]
+    @Query("SELECT r.id, r.name, r.description, r.cuisineType, r.openHours, r.isOpen, r.likes, r.createdAt, r.contactInfo, o.fullName, " +
+            "a.id, a.numberStreet, a.street, a.ward, a.district, a.city, a.postalCode, a.latitude, a.longitude " +
+            "FROM Restaurant r JOIN r.owner o LEFT JOIN r.address a WHERE r.id IN :ids")
+    List<Object[]> findListingRows(Collection<Long> ids);
+
+    //[restaurantId, url ảnh]
+    @Query("SELECT r.id, i FROM Restaurant r JOIN r.images i WHERE r.id IN :ids")
+    List<Object[]> findImagesByIdIn(Collection<Long> ids);
+
+    //[id, latitude, longitude] của các nhà hàng đang mở và có tọa độ, dùng cho RestaurantGeoIndex
+    @Query("SELECT r.id, a.latitude, a.longitude FROM Restaurant r JOIN r.address a " +
+            "WHERE r.createdAt IS NOT NULL AND r.disable = false AND r.isOpen = true " +
+            "AND a.latitude IS NOT NULL AND a.longitude IS NOT NULL")
+    List<Object[]> findGeoRows();
+
+    @Query("SELECT r.id, a.latitude, a.longitude FROM Restaurant r JOIN r.address a " +
+            "WHERE r.id = :id AND r.createdAt IS NOT NULL AND r.disable = false AND r.isOpen = true " +
+            "AND a.latitude IS NOT NULL AND a.longitude IS NOT NULL")
+    List<Object[]> findGeoRowById(Long id);
 
-    @Query("SELECT DISTINCT r FROM Restaurant r " +
-            "WHERE (LOWER(r.name) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-            "OR EXISTS (SELECT 1 FROM r.foods f WHERE LOWER(f.name) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
-            "OR LOWER(r.cuisineType) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND r.disable = false ")
-    List<Restaurant> searchRestaurantsByKeyword(@Param("keyword") String keyword);
+    //[disable, latitude, longitude], nhà hàng chưa có địa chỉ thì tọa độ null
+    @Query("SELECT r.disable, a.latitude, a.longitude FROM Restaurant r LEFT JOIN r.address a WHERE r.id = :id")
+    List<Object[]> findLocationById(Long id);
 }
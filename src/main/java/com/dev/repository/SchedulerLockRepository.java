@@ -0,0 +1,27 @@
+package com.dev.repository;
+
+import com.dev.models.SchedulerLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLock, String> {
+
+    //INSERT thật (save() với id tự gán sẽ merge và ghi đè dòng node khác vừa tạo), trùng key thì ném exception
+    @Modifying
+    @Query("INSERT INTO SchedulerLock (name, lockedUntil, lockedBy) VALUES (:name, :until, :owner)")
+    int insert(String name, Instant until, String owner);
+
+    @Modifying
+    @Query("UPDATE SchedulerLock l SET l.lockedUntil = :until, l.lockedBy = :owner " +
+            "WHERE l.name = :name AND (l.lockedUntil < :now OR l.lockedBy = :owner)")
+    int acquire(String name, Instant now, Instant until, String owner);
+
+    @Modifying
+    @Query("UPDATE SchedulerLock l SET l.lockedUntil = :now WHERE l.name = :name AND l.lockedBy = :owner")
+    int release(String name, Instant now, String owner);
+}
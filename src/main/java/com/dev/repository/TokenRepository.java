@@ -1,20 +1,50 @@
 package com.dev.repository;
 
 import com.dev.models.Token;
-import com.dev.models.User;
-import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TokenRepository extends JpaRepository<Token, Long> {
-    Optional<Token> findByUser(User user);
-    void deleteByUser(User user);
+
+    @Query("SELECT t FROM Token t JOIN FETCH t.user WHERE t.tokenHash = :tokenHash")
+    Optional<Token> findByTokenHashWithUser(String tokenHash);
+
+    //rotate: chỉ 1 request đổi được token cũ, request dùng lại token cũ nhận 0
+    @Transactional
+    @Modifying
+    @Query("UPDATE Token t SET t.tokenHash = :newTokenHash, t.expiresAt = :expiresAt WHERE t.tokenHash = :oldTokenHash")
+    int rotate(String oldTokenHash, String newTokenHash, Date expiresAt);
 
     @Transactional
-    void deleteTokenByUser(User user);
+    @Modifying
+    @Query("DELETE FROM Token t WHERE t.tokenHash = :tokenHash AND t.user.id = :userId")
+    int deleteByTokenHashAndUserId(String tokenHash, Long userId);
+
+    @Modifying
+    @Query("DELETE FROM Token t WHERE t.user.id = :userId")
+    int deleteByUserId(Long userId);
+
+    @Query("SELECT t.tokenHash FROM Token t WHERE t.user.id = :userId")
+    List<String> findTokenHashesByUserId(Long userId);
+
+    //thiết bị mới nhất trước, dùng để bỏ các thiết bị vượt giới hạn
+    @Query("SELECT t.id FROM Token t WHERE t.user.id = :userId ORDER BY t.createdAt DESC, t.id DESC")
+    List<Long> findIdsByUserIdNewestFirst(Long userId);
+
+    @Query("SELECT t.id FROM Token t WHERE t.expiresAt < :now")
+    List<Long> findExpiredIds(Date now, Pageable pageable);
 
-    Optional<Token> findTokenByRefreshToken(String token);
+    @Modifying
+    @Query("DELETE FROM Token t WHERE t.id IN :ids")
+    int deleteByIds(Collection<Long> ids);
 }
@@ -4,9 +4,11 @@ import com.dev.models.Restaurant;
 import com.dev.models.User;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,12 +17,19 @@ import java.util.Optional;
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
 
-    @Query("SELECT u FROM User u JOIN u.favorites f where f.id = :restaurantId")
-    List<User> fetchUsersByFavorites(Long restaurantId);
-
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.addresses where u.email = :email")
     Optional<User> findByEmailWithAddress(String email);
 
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.orders o where u.email = :email ")
     Optional<User> findByEmailWithOrder(String email);
+
+    //chỉ ghi đè khi password chưa bị đổi từ lúc đọc
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :newPassword WHERE u.id = :id AND u.password = :oldPassword")
+    int updatePassword(Long id, String oldPassword, String newPassword);
+
+    //[userId, role, restaurantId] cho IdentityCache, 1 query thay cho findByEmail + findByOwnerEmail
+    @Query("SELECT u.id, u.role, r.id FROM User u LEFT JOIN Restaurant r ON r.owner = u WHERE u.email = :email")
+    List<Object[]> findIdentityRows(String email);
 }
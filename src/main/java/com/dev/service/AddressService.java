@@ -33,6 +33,9 @@ public class AddressService {
     @Transactional
     @PreAuthorize("hasRole('USER')")
     public AddressResponse createAddress(CreateAddressRequest request) {
+        if((request.latitude() == null) != (request.longitude() == null)) {
+            throw new AppException(ErrorEnum.LOCATION_INVALID);
+        }
         var email = SecurityContextHolder.getContext().getAuthentication().getName();
         User user = userRepository.findByEmailWithAddress(email)
                 .orElseThrow(() -> new AppException(ErrorEnum.NOT_FOUND_USER));
@@ -15,8 +15,8 @@ import com.dev.models.Token;
 import com.dev.models.User;
 import com.dev.repository.CartRepository;
 import com.dev.repository.RestaurantRepository;
-import com.dev.repository.TokenRepository;
 import com.dev.repository.UserRepository;
+import com.dev.cache.IdentityCache;
 import com.dev.utils.AuthUtil;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jwt.SignedJWT;
@@ -24,11 +24,11 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.text.ParseException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Date;
 
 @Slf4j
@@ -38,11 +38,12 @@ public class AuthenticateService {
 
     private final UserRepository userRepository;
     private final CartRepository cartRepository;
-    private final TokenRepository tokenRepository;
+    private final RefreshTokenStore refreshTokenStore;
     private final RestaurantRepository restaurantRepository;
     private final UserMapper userMapper;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final AuthUtil authUtil;
+    private final IdentityCache identityCache;
 
     @Value("${jwt.secret.access_token}")
     private String accessTokenSecret;
@@ -64,7 +65,7 @@ public class AuthenticateService {
             throw new AppException(ErrorEnum.USER_EXIST);
         }
         User newUserMapp = userMapper.toUser(registerUserRequest);
-        newUserMapp.setPassword(passwordEncoder.encode(newUserMapp.getPassword()));
+        newUserMapp.setPassword(passwordHasher.encode(newUserMapp.getPassword()));
         RoleEnum role = registerUserRequest.isRestaurant() ? RoleEnum.ROLE_RESTAURANT : RoleEnum.ROLE_USER;
         newUserMapp.setRole(role);
 
@@ -72,12 +73,10 @@ public class AuthenticateService {
 
         //generate token
         String accessToken = authUtil.generateToken(newUser,expireAccessToken,accessTokenSecret,null);
-        String refreshToken = authUtil.generateToken(newUser,expireRefreshToken,refreshTokenSecret,null);
-        //save refresh token into token entity
-        tokenRepository.save(Token.builder()
-                        .user(newUser)
-                        .refreshToken(refreshToken)
-                .build());
+        Date refreshExpiresAt = refreshTokenExpiresAt();
+        String refreshToken = authUtil.generateToken(newUser,expireRefreshToken,refreshTokenSecret,refreshExpiresAt);
+        //lưu digest của refresh token
+        refreshTokenStore.issue(newUser, refreshToken, refreshExpiresAt);
 
 
         if (!registerUserRequest.isRestaurant()) {
@@ -113,24 +112,23 @@ public class AuthenticateService {
         if(user == null) {
             throw new  AppException(ErrorEnum.FAILED_LOGIN);
         }
-        boolean isMatch = passwordEncoder.matches(request.password(), user.getPassword());
+        boolean isMatch = passwordHasher.matches(request.password(), user.getPassword());
         if(!isMatch) {
             throw new AppException(ErrorEnum.FAILED_LOGIN);
         }
+        //hash cũ cost thấp hơn cấu hình hiện tại -> hash lại bằng password vừa nhập, không chặn response
+        if(passwordHasher.needsRehash(user.getPassword())) {
+            Long userId = user.getId();
+            String oldPassword = user.getPassword();
+            passwordHasher.rehashAsync(request.password(),
+                    newPassword -> userRepository.updatePassword(userId, oldPassword, newPassword));
+        }
         //generate token
         String accessToken = authUtil.generateToken(user,expireAccessToken,accessTokenSecret,null);
-        String refreshToken = authUtil.generateToken(user,expireRefreshToken,refreshTokenSecret,null);
-
-        Token token = tokenRepository.findByUser(user).orElse(null);
-        if(token == null) {
-            tokenRepository.save(Token.builder()
-                    .user(user)
-                    .refreshToken(refreshToken)
-                    .build());
-        }else {
-            token.setRefreshToken(refreshToken);
-            tokenRepository.save(token);
-        }
+        Date refreshExpiresAt = refreshTokenExpiresAt();
+        String refreshToken = authUtil.generateToken(user,expireRefreshToken,refreshTokenSecret,refreshExpiresAt);
+        //mỗi lần đăng nhập là 1 thiết bị, không đụng token của thiết bị khác
+        refreshTokenStore.issue(user, refreshToken, refreshExpiresAt);
         TokenResponse tokenResponse =TokenResponse.builder()
                 .access_token(accessToken)
                 .refresh_token(refreshToken)
@@ -140,17 +138,17 @@ public class AuthenticateService {
 
     }
 
-    public String logoutUser() {
-        var auth = SecurityContextHolder.getContext().getAuthentication();
-        var email = auth.getName();
+    //có refresh token -> logout thiết bị đó, không có -> logout mọi thiết bị
+    public String logoutUser(RefreshTokenRequest request) {
+        var identity = identityCache.current();
         //xóa token trong db
-        User user = userRepository.findByEmail(email).orElse(null);
-
-        if(user == null) {
-            throw new  AppException(ErrorEnum.NOT_FOUND_USER);
+        log.info("EMAIL " + identity.email());
+        if(request != null && request.refresh_token() != null) {
+            refreshTokenStore.revoke(identity.userId(), request.refresh_token());
+        } else {
+            refreshTokenStore.revokeAll(identity.userId());
         }
-        log.info("EMAIL " + user.getEmail());
-        tokenRepository.deleteTokenByUser(user);
+        identityCache.evict(identity.email());
         return "Logout successfully";
     }
 
@@ -159,26 +157,23 @@ public class AuthenticateService {
     public TokenResponse refreshToken(RefreshTokenRequest request) throws ParseException, JOSEException {
         String token = request.refresh_token();
         SignedJWT signedJWT = authUtil.verifyToken(token,refreshTokenSecret);
-        //kiểm tra token trong db
-        Token refreshTokenEntity = tokenRepository.findTokenByRefreshToken(token).orElse(null);
-        if(refreshTokenEntity == null) {
-            throw new AppException(ErrorEnum.UNAUTHENTICATED);
-        }
-        User user = userRepository.findById(refreshTokenEntity.getUser().getId()).orElse(null);
-        if(user == null) {
-            throw new AppException(ErrorEnum.NOT_FOUND_USER);
-        }
+        //kiểm tra token trong db (token + user trong 1 query), token đã thu hồi bị chặn trước khi query
+        Token refreshTokenEntity = refreshTokenStore.findActive(token);
+        User user = refreshTokenEntity.getUser();
         Date expireTimeOfRefreshToken = signedJWT.getJWTClaimsSet().getExpirationTime();
         String accessToken = authUtil.generateToken(user,expireAccessToken,accessTokenSecret,null);
         String refreshToken = authUtil.generateToken(user,expireRefreshToken,refreshTokenSecret,expireTimeOfRefreshToken);
 
         //cập nhật token trong db
-        refreshTokenEntity.setRefreshToken(refreshToken);
-        tokenRepository.save(refreshTokenEntity);
+        refreshTokenStore.rotate(refreshTokenEntity, refreshToken, expireTimeOfRefreshToken);
         TokenResponse tokenResponse =TokenResponse.builder()
                 .access_token(accessToken)
                 .refresh_token(refreshToken)
                 .build();
         return tokenResponse;
     }
+
+    private Date refreshTokenExpiresAt() {
+        return new Date(Instant.now().plus(expireRefreshToken, ChronoUnit.DAYS).toEpochMilli());
+    }
 }
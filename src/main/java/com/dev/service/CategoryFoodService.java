@@ -1,5 +1,6 @@
 package com.dev.service;
 
+import com.dev.cache.MenuChangedEvent;
 import com.dev.dto.response.CategoryFoodResponse;
 import com.dev.enums.ErrorEnum;
 import com.dev.exception.AppException;
@@ -14,6 +15,7 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -32,6 +34,7 @@ public class CategoryFoodService {
     CategoryFoodMapper categoryFoodMapper;
     RestaurantRepository restaurantRepository;
     Helper helper;
+    ApplicationEventPublisher eventPublisher;
 
     @PreAuthorize("hasRole('RESTAURANT')")
     @Transactional
@@ -44,6 +47,7 @@ public class CategoryFoodService {
                 .build();
         restaurant.addCategoryFood(newCategoryFood);
         restaurantRepository.save(restaurant);
+        eventPublisher.publishEvent(new MenuChangedEvent(restaurant.getId()));
         return CategoryFoodResponse.builder().name(name).build();
     }
 
@@ -61,6 +65,7 @@ public class CategoryFoodService {
 
         categoryFood.setName(name);
         categoryFoodRepository.save(categoryFood);
+        eventPublisher.publishEvent(new MenuChangedEvent(categoryFood.getRestaurant().getId()));
         return categoryFoodMapper.toCategoryFoodResponse(categoryFood);
     }
 
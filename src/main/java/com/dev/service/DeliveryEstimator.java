@@ -0,0 +1,93 @@
+package com.dev.service;
+
+import com.dev.cache.PrepTimeCache;
+import com.dev.dto.response.DeliveryQuoteResponse;
+import com.dev.enums.ErrorEnum;
+import com.dev.exception.AppException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/*
+ * Phí ship + ETA tính trong process, không gọi dịch vụ bản đồ:
+ * - quãng đường = haversine * road-factor (đường thực tế dài hơn đường chim bay)
+ * - phí = base-fee cho base-km đầu, sau đó fee-per-km mỗi km (làm tròn lên), làm tròn tới 1000đ
+ * - ETA = nhận đơn + chờ bếp (queueDepth * prep / kitchen-parallelism) + chuẩn bị + di chuyển với speed-kmh
+ * - etaMax cộng thêm ~p90 độ lệch của nhận đơn/chuẩn bị và 25% thời gian di chuyển
+ */
+@Service
+public class DeliveryEstimator {
+
+    private static final double P90_Z = 1.28;
+
+    private final PrepTimeCache prepTimeCache;
+    private final double roadFactor;
+    private final double speedKmh;
+    private final int kitchenParallelism;
+    private final long baseFee;
+    private final double baseKm;
+    private final long feePerKm;
+    private final double maxDistanceKm;
+
+    public DeliveryEstimator(
+            PrepTimeCache prepTimeCache,
+            @Value("${order.quote.road-factor:1.3}") double roadFactor,
+            @Value("${order.quote.speed-kmh:20}") double speedKmh,
+            @Value("${order.quote.kitchen-parallelism:3}") int kitchenParallelism,
+            @Value("${order.quote.base-fee:15000}") long baseFee,
+            @Value("${order.quote.base-km:2}") double baseKm,
+            @Value("${order.quote.fee-per-km:5000}") long feePerKm,
+            @Value("${order.quote.max-distance-km:20}") double maxDistanceKm
+    ) {
+        this.prepTimeCache = prepTimeCache;
+        this.roadFactor = roadFactor;
+        this.speedKmh = speedKmh;
+        this.kitchenParallelism = Math.max(kitchenParallelism, 1);
+        this.baseFee = baseFee;
+        this.baseKm = baseKm;
+        this.feePerKm = feePerKm;
+        this.maxDistanceKm = maxDistanceKm;
+    }
+
+    public DeliveryQuoteResponse quote(
+            Long restaurantId,
+            double restaurantLatitude,
+            double restaurantLongitude,
+            Long addressId,
+            double addressLatitude,
+            double addressLongitude
+    ) {
+        double distanceKm = RestaurantGeoIndex.distanceKm(restaurantLatitude, restaurantLongitude, addressLatitude, addressLongitude) * roadFactor;
+        if(distanceKm > maxDistanceKm) {
+            throw new AppException(ErrorEnum.DELIVERY_OUT_OF_RANGE);
+        }
+        PrepTimeCache.Snapshot stats = prepTimeCache.get(restaurantId);
+
+        double travelSeconds = distanceKm / speedKmh * 3600;
+        double queueSeconds = (double) stats.queueDepth() * stats.prepMeanSeconds() / kitchenParallelism;
+        double etaSeconds = stats.acceptMeanSeconds() + queueSeconds + stats.prepMeanSeconds() + travelSeconds;
+        double spreadSeconds = P90_Z * Math.sqrt(stats.acceptStdSeconds() * stats.acceptStdSeconds()
+                + stats.prepStdSeconds() * stats.prepStdSeconds()) + 0.25 * travelSeconds;
+
+        return DeliveryQuoteResponse.builder()
+                .restaurantId(restaurantId)
+                .addressId(addressId)
+                .distanceKm(Math.round(distanceKm * 10) / 10.0)
+                .deliveryFee(fee(distanceKm))
+                .queueDepth(stats.queueDepth())
+                .prepMinutes(minutes(queueSeconds + stats.prepMeanSeconds()))
+                .travelMinutes(minutes(travelSeconds))
+                .etaMinutes(minutes(etaSeconds))
+                .etaMaxMinutes(minutes(etaSeconds + spreadSeconds))
+                .build();
+    }
+
+    private long fee(double distanceKm) {
+        long extraKm = (long) Math.ceil(Math.max(0, distanceKm - baseKm));
+        long fee = baseFee + extraKm * feePerKm;
+        return (fee + 999) / 1000 * 1000;
+    }
+
+    private static int minutes(double seconds) {
+        return (int) Math.ceil(seconds / 60);
+    }
+}
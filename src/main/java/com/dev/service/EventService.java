@@ -1,5 +1,6 @@
 package com.dev.service;
 
+import com.dev.cache.EventChangedEvent;
 import com.dev.dto.request.EventRequest;
 import com.dev.dto.response.EventResponseExtend;
 import com.dev.enums.ErrorEnum;
@@ -17,12 +18,12 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.security.SecureRandom;
-import java.time.LocalDateTime;
 import java.util.*;
 
 @Slf4j
@@ -34,6 +35,8 @@ public class EventService {
     FoodRepository foodRepository;
     RestaurantRepository restaurantRepository;
     EventMapper eventMapper;
+    PricingEngine pricingEngine;
+    ApplicationEventPublisher eventPublisher;
     String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
 
     @Transactional
@@ -59,9 +62,7 @@ public class EventService {
             }
         }
         for(Food food : foods) {
-            Event event = food.getEvent();
-            var now = LocalDateTime.now();
-            if(event != null && event.isActive()  && event.getEndTime().isAfter(now)) {
+            if(pricingEngine.hasDiscount(food.getId())) {
                 throw new AppException(ErrorEnum.FOOD_HAS_VOUCHER);
             }
         }
@@ -90,6 +91,7 @@ public class EventService {
         restaurant.addEvent(event);
         eventRepository.save(event);
         restaurantRepository.save(restaurant);
+        eventPublisher.publishEvent(new EventChangedEvent(event.getId()));
     }
 
     @Transactional
@@ -101,6 +103,7 @@ public class EventService {
         }
         event.setActive(!event.isActive());
         eventRepository.save(event);
+        eventPublisher.publishEvent(new EventChangedEvent(event.getId()));
     }
 
     @PreAuthorize("hasRole('RESTAURANT')")
@@ -1,28 +1,29 @@
 package com.dev.service;
 
-import com.cloudinary.utils.ObjectUtils;
-import com.dev.config.CloudinaryConfig;
+import com.dev.cache.MenuCache;
+import com.dev.cache.MenuChangedEvent;
+import com.dev.cache.MenuSnapshot;
 import com.dev.dto.request.CreateFoodRequest;
 import com.dev.dto.response.*;
 import com.dev.enums.ErrorEnum;
 import com.dev.exception.AppException;
-import com.dev.mapper.EventMapper;
 import com.dev.mapper.FoodMapper;
 import com.dev.mapper.IngredientItemMapper;
 import com.dev.models.*;
 import com.dev.repository.*;
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -33,22 +34,39 @@ import java.util.stream.Collectors;
 public class FoodService {
     FoodRepository foodRepository;
     RestaurantRepository restaurantRepository;
-    CloudinaryConfig cloudinaryConfig;
     CategoryFoodRepository categoryFoodRepository;
     IngredientItemRepository ingredientItemRepository;
     FoodMapper foodMapper;
     IngredientItemMapper ingredientItemMapper;
     CategoryIngredientRepository categoryIngredientRepository;
-    EventMapper eventMapper;
+    MenuCache menuCache;
+    PricingEngine pricingEngine;
+    ApplicationEventPublisher eventPublisher;
+    ImageUploader imageUploader;
+    TransactionTemplate transactionTemplate;
 
-    @Transactional
     @PreAuthorize("hasRole('RESTAURANT')")
     public FoodResponse addFood(CreateFoodRequest request, MultipartFile file) throws IOException {
         if(file == null || file.isEmpty()) {
             throw new AppException(ErrorEnum.FOOD_FILE_IMAGE);
         }
-        //tìm restaurant
         var email = SecurityContextHolder.getContext().getAuthentication().getName();
+        //kiểm tra trước khi upload để request sai không tốn 1 lần upload
+        Long restaurantId = transactionTemplate.execute(status -> prepareFood(email, request).restaurant().getId());
+
+        //upload ngoài transaction, không giữ connection DB trong lúc truyền file
+        List<String> urls = imageUploader.uploadAll(List.of(file), "restaurant_" + restaurantId);
+        try {
+            //transaction ngắn: kiểm tra lại (món cùng tên có thể vừa được tạo) rồi insert
+            return transactionTemplate.execute(status -> saveFood(prepareFood(email, request), request, new HashSet<>(urls)));
+        } catch (RuntimeException e) {
+            imageUploader.deleteAsync(urls);
+            throw e;
+        }
+    }
+
+    private FoodDraft prepareFood(String email, CreateFoodRequest request) {
+        //tìm restaurant
         Restaurant restaurant = restaurantRepository.findByOwnerEmailWithCategoryFood(email).orElse(null);
         if (restaurant == null) {
             throw new AppException(ErrorEnum.RES_NOT_FOUND);
@@ -88,17 +106,13 @@ public class FoodService {
         if(ingredientItems.size() != request.getIngredients().size()) {
             throw new AppException(ErrorEnum.FOOD_INGREDIENT_INVALID);
         }
+        return new FoodDraft(restaurant, categoryFood, ingredientItems);
+    }
 
-
-
-
-        var result= cloudinaryConfig.cloudinary().uploader().upload(file.getBytes(), ObjectUtils.asMap(
-                "folder", "restaurant_"+restaurant.getId()
-        ));
-
-        var urlImg = result.get("secure_url");
-        Set<String> listImgs = new HashSet<>();
-        listImgs.add((String) urlImg);
+    private FoodResponse saveFood(FoodDraft draft, CreateFoodRequest request, Set<String> listImgs) {
+        Restaurant restaurant = draft.restaurant();
+        CategoryFood categoryFood = draft.categoryFood();
+        Set<IngredientItem> ingredientItems = draft.ingredientItems();
 
         Food newFood = Food.builder()
                 .name(request.getName())
@@ -124,6 +138,7 @@ public class FoodService {
         restaurantRepository.save(restaurant);
         categoryFoodRepository.save(categoryFood);
         ingredientItemRepository.saveAll(ingredientItems);
+        eventPublisher.publishEvent(new MenuChangedEvent(restaurant.getId()));
         FoodResponse foodResponse = foodMapper.toFoodResponse(newFood);
         foodResponse.setCategoryFood(CategoryFoodResponse.builder().name(categoryFood.getName()).build());
         var ingredientResponse = ingredientItems.stream().map(ingredientItemMapper::toIngredientItemResponse).collect(Collectors.toSet());
@@ -144,6 +159,7 @@ public class FoodService {
 
         foodRes.setDisable(!foodRes.isDisable());
         foodRepository.save(foodRes);
+        eventPublisher.publishEvent(new MenuChangedEvent(restaurant.getId()));
     }
 
     @Transactional
@@ -158,10 +174,12 @@ public class FoodService {
                 .findFirst().orElseThrow(() -> new AppException(ErrorEnum.FOOD_NOT_FOUND));
         foodRes.setAvailable(!foodRes.isAvailable());
         foodRepository.save(foodRes);
+        eventPublisher.publishEvent(new MenuChangedEvent(restaurant.getId()));
     }
 
 
 
+    @Transactional(readOnly = true)
     @PreAuthorize("hasRole('RESTAURANT')")
     public List<FoodResponse> getRestaurantFoodsAll() {
         var email = SecurityContextHolder.getContext().getAuthentication().getName();
@@ -184,6 +202,7 @@ public class FoodService {
         return foodResponses;
     }
 
+    @Transactional(readOnly = true)
     @PreAuthorize("hasRole('RESTAURANT')")
     public FoodResponse getFoodDetailRestaurant(Long id) {
         var email = SecurityContextHolder.getContext().getAuthentication().getName();
@@ -205,58 +224,32 @@ public class FoodService {
         return foodResponse;
     }
 
+    @Transactional(readOnly = true)
     @PreAuthorize("hasRole('USER')")
     public List<FoodWithCategoryResponse> getRestaurantFoods(
             Long id,
             Optional<Boolean> vegetarian,
             Optional<Boolean> seasonal
     ) {
-        Restaurant restaurant = restaurantRepository.findRestaurantWithCategory(id)
-                .orElseThrow(() -> new AppException(ErrorEnum.RES_NOT_FOUND));
-        Set<CategoryFood> categoryFoods = restaurant.getCategoryFoods();
+        MenuSnapshot menu = menuCache.get(id, this::buildMenuSnapshot);
 
         List<FoodWithCategoryResponse> foodResponses = new ArrayList<>();
-
-        for(CategoryFood categoryFood:categoryFoods){
-            var foods = categoryFood.getFoods();
-            Set<Food> foodsFilter = foods;
-            if(vegetarian.isPresent()) {
-                foodsFilter =  foods.stream().filter(food -> {
-                    return food.isVegetarian() == vegetarian.get();
-                }).collect(Collectors.toSet());
-            }
-
-            if(seasonal.isPresent()) {
-
-                foodsFilter = foods.stream().filter(food -> {
-                    return food.isSeasonal() == seasonal.get();
-                }).collect(Collectors.toSet());;
-            }
-
+        for(MenuSnapshot.Category category : menu.categories()){
             List<FoodCategoryResponse> foodCategoryResponseList = new ArrayList<>();
-            for(Food food:foodsFilter){
-                if(food.isDisable()) {
+            for(MenuSnapshot.MenuFood food : category.foods()){
+                if(food.disable()) {
                     continue;
                 }
-
-                var ingredientFoodLength = food.getIngredients().size();
-                FoodCategoryResponse foodCategoryResponse = foodMapper.toFoodCategoryResponse(food);
-                foodCategoryResponse.setIngredientsNum(ingredientFoodLength);
-                Event event = food.getEvent();
-                var now = LocalDateTime.now();
-
-
-                if(event != null && event.isActive()  && event.getEndTime().isAfter(now)) {
-                    EventResponse eventResponse = eventMapper.toEventResponse(event);
-                    foodCategoryResponse.setEvent(eventResponse);
-                }else {
-                    foodCategoryResponse.setEvent(null);
+                if(vegetarian.isPresent() && food.vegetarian() != vegetarian.get()) {
+                    continue;
                 }
-
-                foodCategoryResponseList.add(foodCategoryResponse);
+                if(seasonal.isPresent() && food.seasonal() != seasonal.get()) {
+                    continue;
+                }
+                foodCategoryResponseList.add(toFoodCategoryResponse(food));
             }
             FoodWithCategoryResponse foodOptimizeResponse = FoodWithCategoryResponse.builder()
-                    .category(categoryFood.getName())
+                    .category(category.name())
                     .foods(foodCategoryResponseList)
                     .build();
             foodResponses.add(foodOptimizeResponse);
@@ -264,6 +257,7 @@ public class FoodService {
         return foodResponses;
     }
 
+    @Transactional(readOnly = true)
     @PreAuthorize("hasRole('USER')")
     public Object getIngredientOfFood(Long id) {
         Food food = foodRepository.findByIdWithIngredients(id)
@@ -302,4 +296,58 @@ public class FoodService {
         foodIngredientResponse.setId(food.getId());
         return foodIngredientResponse;
     }
+
+    //3 query cho cả menu: categories, foods (+ category, event, images), số ingredient mỗi food
+    private MenuSnapshot buildMenuSnapshot(Long restaurantId) {
+        List<CategoryFood> categoryFoods = categoryFoodRepository.findByRestaurantId(restaurantId);
+        if(categoryFoods.isEmpty() && !restaurantRepository.existsById(restaurantId)) {
+            throw new AppException(ErrorEnum.RES_NOT_FOUND);
+        }
+        Map<Long, Long> ingredientsNum = new HashMap<>();
+        for (Object[] row : foodRepository.countIngredientsByRestaurantId(restaurantId)) {
+            ingredientsNum.put((Long) row[0], (Long) row[1]);
+        }
+        Map<Long, List<MenuSnapshot.MenuFood>> foodsByCategory = new HashMap<>();
+        for (Food food : foodRepository.findMenuByRestaurantId(restaurantId)) {
+            if(food.getCategoryFood() == null) {
+                continue;
+            }
+            MenuSnapshot.MenuFood menuFood = new MenuSnapshot.MenuFood(
+                    food.getId(),
+                    food.getName(),
+                    food.getPrice(),
+                    food.getDescription(),
+                    Set.copyOf(food.getImages()),
+                    food.isAvailable(),
+                    food.isVegetarian(),
+                    food.isSeasonal(),
+                    food.isDisable(),
+                    ingredientsNum.getOrDefault(food.getId(), 0L).intValue()
+            );
+            foodsByCategory.computeIfAbsent(food.getCategoryFood().getId(), k -> new ArrayList<>()).add(menuFood);
+        }
+        List<MenuSnapshot.Category> categories = categoryFoods.stream()
+                .map(categoryFood -> new MenuSnapshot.Category(
+                        categoryFood.getName(),
+                        List.copyOf(foodsByCategory.getOrDefault(categoryFood.getId(), List.of()))
+                ))
+                .toList();
+        return new MenuSnapshot(restaurantId, categories, System.currentTimeMillis());
+    }
+
+    private FoodCategoryResponse toFoodCategoryResponse(MenuSnapshot.MenuFood food) {
+        FoodCategoryResponse foodCategoryResponse = FoodCategoryResponse.builder()
+                .id(food.id())
+                .name(food.name())
+                .price(food.price() == null ? null : String.valueOf(food.price()))
+                .description(food.description())
+                .images(food.images())
+                .available(food.available())
+                .ingredientsNum(food.ingredientsNum())
+                .build();
+        foodCategoryResponse.setEvent(pricingEngine.activeEventResponse(food.id()));
+        return foodCategoryResponse;
+    }
+
+    private record FoodDraft(Restaurant restaurant, CategoryFood categoryFood, Set<IngredientItem> ingredientItems) {}
 }
@@ -0,0 +1,141 @@
+package com.dev.service;
+
+import com.dev.enums.ErrorEnum;
+import com.dev.exception.AppException;
+import com.dev.storage.ImageStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+/*
+ * Upload ảnh song song trên pool có giới hạn (image.upload.threads), gọi ngoài transaction:
+ * không giữ connection DB trong lúc truyền file, file đọc dạng stream từ MultipartFile.getInputStream().
+ * 1 file lỗi thì cả lô lỗi, các ảnh đã upload của lô đó bị xóa.
+ * Metrics: image.upload.duration, image.upload.failed, image.upload.rejected, image.upload.queue.size.
+ */
+@Slf4j
+@Service
+public class ImageUploader {
+
+    private final ImageStorage imageStorage;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final Timer uploadTimer;
+    private final Counter failed;
+    private final Counter rejected;
+
+    public ImageUploader(
+            ImageStorage imageStorage,
+            MeterRegistry meterRegistry,
+            @Value("${image.upload.threads:4}") int threads,
+            @Value("${image.upload.queue-capacity:64}") int queueCapacity,
+            @Value("${image.upload.timeout-ms:60000}") long timeoutMs
+    ) {
+        this.imageStorage = imageStorage;
+        this.timeoutMs = timeoutMs;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-uploader");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.uploadTimer = Timer.builder("image.upload.duration").register(meterRegistry);
+        this.failed = Counter.builder("image.upload.failed").register(meterRegistry);
+        this.rejected = Counter.builder("image.upload.rejected").register(meterRegistry);
+        Gauge.builder("image.upload.queue.size", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+    }
+
+    //URL trả về theo đúng thứ tự files
+    public List<String> uploadAll(List<MultipartFile> files, String folder) {
+        List<Future<String>> futures = new ArrayList<>(files.size());
+        try {
+            for (MultipartFile file : files) {
+                futures.add(executor.submit(() -> upload(file, folder)));
+            }
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            discard(futures);
+            throw new AppException(ErrorEnum.IMAGE_UPLOAD_BUSY);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<String> urls = new ArrayList<>(files.size());
+        try {
+            for (Future<String> future : futures) {
+                urls.add(future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+            }
+            return urls;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            discard(futures);
+            throw new IllegalStateException(e);
+        } catch (ExecutionException | TimeoutException e) {
+            failed.increment();
+            log.warn("Image upload to {} failed", folder, e instanceof ExecutionException ? e.getCause() : e);
+            discard(futures);
+            throw new AppException(ErrorEnum.IMAGE_UPLOAD_FAILED);
+        }
+    }
+
+    //xóa nền, lỗi chỉ log (ảnh mồ côi trên storage không ảnh hưởng dữ liệu)
+    public void deleteAsync(Collection<String> urls) {
+        for (String url : urls) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        imageStorage.delete(url);
+                    } catch (IOException | RuntimeException e) {
+                        log.warn("Delete image {} failed", url, e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                log.warn("Delete image {} skipped, upload pool is full", url);
+            }
+        }
+    }
+
+    private String upload(MultipartFile file, String folder) throws Exception {
+        return uploadTimer.recordCallable(() -> {
+            try (InputStream content = file.getInputStream()) {
+                return imageStorage.upload(content, file.getSize(), folder, file.getOriginalFilename());
+            }
+        });
+    }
+
+    //hủy phần chưa chạy, xóa phần đã upload xong
+    private void discard(List<Future<String>> futures) {
+        List<String> uploaded = new ArrayList<>();
+        for (Future<String> future : futures) {
+            if(!future.isDone()) {
+                future.cancel(true);
+                continue;
+            }
+            try {
+                uploaded.add(future.get());
+            } catch (ExecutionException | CancellationException | InterruptedException ignored) {
+                //upload lỗi, không có gì để xóa
+            }
+        }
+        deleteAsync(uploaded);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
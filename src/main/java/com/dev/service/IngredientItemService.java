@@ -1,5 +1,6 @@
 package com.dev.service;
 
+import com.dev.cache.MenuChangedEvent;
 import com.dev.dto.request.IngredientItemRequest;
 import com.dev.dto.request.IngredientItemUpdateRequest;
 import com.dev.dto.response.IngredientItemResponse;
@@ -20,6 +21,7 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -38,6 +40,7 @@ public class IngredientItemService {
     IngredientItemMapper ingredientItemMapper;
     CategoryIngMapper categoryIngMapper;
     RestaurantRepository restaurantRepository;
+    ApplicationEventPublisher eventPublisher;
 
     @Transactional
     @PreAuthorize("hasRole('RESTAURANT')")
@@ -74,6 +77,7 @@ public class IngredientItemService {
                 .build();
         categoryIngredient.addIngredient(newIngredientItem);
         categoryIngredientRepository.save(categoryIngredient);
+        eventPublisher.publishEvent(new MenuChangedEvent(restaurant.getId()));
 
         IngredientItemResponse ingredientItemResponse = ingredientItemMapper.toIngredientItemResponse(newIngredientItem);
         ingredientItemResponse.setStock(true);
@@ -99,6 +103,7 @@ public class IngredientItemService {
             ingredientItem.setPrice(request.price().get());
         }
         ingredientItemRepository.save(ingredientItem);
+        eventPublisher.publishEvent(new MenuChangedEvent(ingredientItem.getCategoryIngredient().getRestaurant().getId()));
         var ingredientResponse = IngredientItemResponse.builder()
                 .name(request.name().isPresent() ? request.name().get() : ingredientItem.getName())
                 .price(request.price().isPresent() ? request.price().get() : ingredientItem.getPrice())
@@ -122,6 +127,7 @@ public class IngredientItemService {
         categoryIngredient.removeIngredient(ingredientItem);
         //categoryIngredientRepository.save(categoryIngredient);
         ingredientItemRepository.delete(ingredientItem);
+        eventPublisher.publishEvent(new MenuChangedEvent(categoryIngredient.getRestaurant().getId()));
     }
 
     @Transactional
@@ -132,6 +138,7 @@ public class IngredientItemService {
         }
         ingredientItem.setStock(!ingredientItem.isStock());
         var updatedIngredientItem = ingredientItemRepository.save(ingredientItem);
+        eventPublisher.publishEvent(new MenuChangedEvent(updatedIngredientItem.getCategoryIngredient().getRestaurant().getId()));
         var response = ingredientItemMapper.toIngredientItemResponse(updatedIngredientItem);
         response.setStock(updatedIngredientItem.isStock());
         response.setCategoryIngredient(categoryIngMapper.toCategoryIngredientResponses(updatedIngredientItem.getCategoryIngredient()));
@@ -0,0 +1,184 @@
+package com.dev.service;
+
+import com.dev.dto.response.OrderEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * In-process pub/sub cho order feed (SSE).
+ * - Mỗi subscriber có buffer giới hạn, đầy thì bỏ event cũ nhất (drop-oldest) để client chậm không giữ bộ nhớ.
+ * - Connection rảnh không giữ thread nào: SseEmitter chạy async trên servlet, chỉ khi có event mới
+ *   mượn 1 thread của drainExecutor để ghi ra socket.
+ */
+@Slf4j
+@Service
+public class OrderEventBus {
+
+    private final Map<Long, Set<Subscriber>> restaurantSubscribers = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscriber>> customerSubscribers = new ConcurrentHashMap<>();
+    private final ExecutorService drainExecutor = Executors.newFixedThreadPool(4, runnable -> {
+        Thread thread = new Thread(runnable, "order-event-drain");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    @Value("${order.stream.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${order.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    public SseEmitter subscribeRestaurant(Long restaurantId) {
+        return subscribe(restaurantSubscribers, restaurantId);
+    }
+
+    public SseEmitter subscribeCustomer(Long customerId) {
+        return subscribe(customerSubscribers, customerId);
+    }
+
+    //chỉ đẩy event khi transaction đã commit
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvent(OrderEvent event) {
+        dispatch(restaurantSubscribers.get(event.restaurantId()), event);
+        dispatch(customerSubscribers.get(event.customerId()), event);
+    }
+
+    @Scheduled(fixedDelayString = "${order.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        restaurantSubscribers.values().forEach(subscribers -> subscribers.forEach(Subscriber::ping));
+        customerSubscribers.values().forEach(subscribers -> subscribers.forEach(Subscriber::ping));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainExecutor.shutdown();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    private SseEmitter subscribe(Map<Long, Set<Subscriber>> registry, Long key) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, registry, key);
+        registry.compute(key, (k, subscribers) -> {
+            if(subscribers == null) {
+                subscribers = ConcurrentHashMap.newKeySet();
+            }
+            subscribers.add(subscriber);
+            return subscribers;
+        });
+        emitter.onCompletion(subscriber::unregister);
+        emitter.onTimeout(subscriber::unregister);
+        emitter.onError(e -> subscriber.unregister());
+        return emitter;
+    }
+
+    private void dispatch(Set<Subscriber> subscribers, OrderEvent event) {
+        if(subscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    private class Subscriber {
+        final SseEmitter emitter;
+        final Map<Long, Set<Subscriber>> registry;
+        final Long key;
+        final Deque<OrderEvent> buffer = new ArrayDeque<>();
+        final AtomicBoolean draining = new AtomicBoolean(false);
+
+        Subscriber(SseEmitter emitter, Map<Long, Set<Subscriber>> registry, Long key) {
+            this.emitter = emitter;
+            this.registry = registry;
+            this.key = key;
+        }
+
+        void unregister() {
+            registry.computeIfPresent(key, (k, subscribers) -> {
+                subscribers.remove(this);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+
+        void offer(OrderEvent event) {
+            synchronized (buffer) {
+                if(buffer.size() >= bufferSize) {
+                    buffer.pollFirst();
+                    droppedEvents.incrementAndGet();
+                }
+                buffer.addLast(event);
+            }
+            scheduleDrain();
+        }
+
+        void ping() {
+            try {
+                emitter.send(SseEmitter.event().comment("ping"));
+            } catch (IOException | IllegalStateException e) {
+                close();
+            }
+        }
+
+        private void scheduleDrain() {
+            if(draining.compareAndSet(false, true)) {
+                drainExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    OrderEvent event;
+                    synchronized (buffer) {
+                        event = buffer.pollFirst();
+                    }
+                    if(event == null) {
+                        break;
+                    }
+                    emitter.send(SseEmitter.event().name(event.type()).data(event));
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+                return;
+            } finally {
+                draining.set(false);
+            }
+            //event đến trong lúc đang tắt cờ draining
+            boolean pending;
+            synchronized (buffer) {
+                pending = !buffer.isEmpty();
+            }
+            if(pending) {
+                scheduleDrain();
+            }
+        }
+
+        private void close() {
+            unregister();
+            try {
+                emitter.complete();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+}
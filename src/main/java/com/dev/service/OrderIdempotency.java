@@ -0,0 +1,159 @@
+package com.dev.service;
+
+import com.dev.dto.response.OrderResponse;
+import com.dev.enums.ErrorEnum;
+import com.dev.exception.AppException;
+import com.dev.models.IdempotencyKey;
+import com.dev.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/*
+ * Idempotency-Key cho POST /order: client retry khi timeout sẽ nhận lại đúng OrderResponse của lần đầu.
+ * - Bộ nhớ: Caffeine (key -> response) có TTL, trả lời retry mà không chạm DB.
+ * - DB: bảng idempotency_key ghi cùng transaction với order (record()), restart vẫn còn.
+ * - Request trùng key đang chạy trên node này -> 409, node khác -> PK của bảng chặn, đọc lại response đã lưu.
+ */
+@Slf4j
+@Service
+public class OrderIdempotency {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Cache<String, OrderResponse> responses;
+    //key đang chạy createOrder trên node này
+    private final Map<String, Boolean> inFlight = new ConcurrentHashMap<>();
+
+    public OrderIdempotency(
+            IdempotencyKeyRepository idempotencyKeyRepository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${order.idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${order.idempotency.max-size:100000}") long maxSize
+    ) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "orderIdempotency");
+    }
+
+    //action nhận key đã hash, gọi method @Transactional bên ngoài để response chỉ được cache sau khi commit
+    public OrderResponse execute(String idempotencyKey, Function<String, OrderResponse> action) {
+        String id = scopedKey(idempotencyKey);
+        OrderResponse cached = find(id);
+        if(cached != null) {
+            return cached;
+        }
+        if(inFlight.putIfAbsent(id, Boolean.TRUE) != null) {
+            throw new AppException(ErrorEnum.IDEMPOTENCY_KEY_IN_PROGRESS);
+        }
+        try {
+            OrderResponse response = action.apply(id);
+            responses.put(id, response);
+            return response;
+        } catch (DataIntegrityViolationException e) {
+            //node khác đã commit cùng key trước -> transaction này rollback, trả response của lần đó
+            OrderResponse existing = find(id);
+            if(existing == null) {
+                throw e;
+            }
+            return existing;
+        } finally {
+            inFlight.remove(id);
+        }
+    }
+
+    //gọi trong transaction của createOrder
+    public void record(String id, Long orderId, OrderResponse response) {
+        Date now = new Date();
+        idempotencyKeyRepository.save(IdempotencyKey.builder()
+                .id(id)
+                .orderId(orderId)
+                .response(toJson(response))
+                .createdAt(now)
+                .expiresAt(new Date(now.getTime() + ttl.toMillis()))
+                .build());
+    }
+
+    @Scheduled(fixedDelayString = "${order.idempotency.purge-ms:3600000}")
+    public void purgeExpired() {
+        int deleted = idempotencyKeyRepository.deleteExpired(new Date());
+        if(deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private OrderResponse find(String id) {
+        OrderResponse cached = responses.getIfPresent(id);
+        if(cached != null) {
+            return cached;
+        }
+        //miss trong bộ nhớ (restart, node khác tạo) -> đọc bảng idempotency_key, không đụng bảng order
+        Optional<IdempotencyKey> row = idempotencyKeyRepository.findValidById(id, new Date());
+        if(row.isEmpty()) {
+            return null;
+        }
+        OrderResponse response = fromJson(row.get().getResponse());
+        responses.put(id, response);
+        return response;
+    }
+
+    private String scopedKey(String idempotencyKey) {
+        if(idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new AppException(ErrorEnum.IDEMPOTENCY_KEY_INVALID);
+        }
+        var email = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((email + ":" + idempotencyKey).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(OrderResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private OrderResponse fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, OrderResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
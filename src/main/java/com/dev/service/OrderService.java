@@ -1,26 +1,33 @@
 package com.dev.service;
 
+import com.dev.cache.CartStore;
+import com.dev.cache.IdentityCache;
+import com.dev.cache.LiveCart;
+import com.dev.dto.request.BulkUpdateStatusOrderRequest;
 import com.dev.dto.request.CreateOrderRequest;
 import com.dev.dto.request.UpdateStatusOrderRequest;
 import com.dev.dto.response.*;
 import com.dev.enums.ErrorEnum;
-import com.dev.enums.EventTypeEnum;
 import com.dev.enums.OrderStatus;
 import com.dev.exception.AppException;
 import com.dev.mapper.*;
 import com.dev.models.*;
 import com.dev.repository.*;
-import jakarta.transaction.Transactional;
+import com.dev.utils.CursorUtil;
+import org.springframework.transaction.annotation.Transactional;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.chrono.ChronoLocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -35,19 +42,28 @@ public class OrderService {
     OrderItemRepository orderItemRepository;
     RestaurantRepository restaurantRepository;
     UserRepository userRepository;
-    CartRepository cartRepository;
+    CartStore cartStore;
+    FoodRepository foodRepository;
     OrderMapper orderMapper;
     UserMapper userMapper;
     AddressMapper addressMapper;
     OrderItemMapper orderItemMapper;
     IngredientItemMapper ingredientItemMapper;
     AddressRepository addressRepository;
+    OrderEventBus orderEventBus;
+    PricingEngine pricingEngine;
+    OrderIdempotency orderIdempotency;
+    OrderTransitionEngine orderTransitionEngine;
+    IdentityCache identityCache;
+    ApplicationEventPublisher eventPublisher;
+    DeliveryEstimator deliveryEstimator;
+
+    private static final int MAX_PAGE_SIZE = 50;
 
     @Transactional
     @PreAuthorize("hasRole('USER')")
-    public OrderResponse createOrder(CreateOrderRequest request) {
-        Restaurant restaurant = restaurantRepository.findById(request.restaurantId())
-                .orElseThrow(() -> new AppException(ErrorEnum.RES_NOT_FOUND));
+    //idempotencyKey: key đã hash bởi OrderIdempotency, null khi client không gửi header
+    public OrderResponse createOrder(CreateOrderRequest request, String idempotencyKey) {
         var email = SecurityContextHolder.getContext().getAuthentication().getName();
         User user = userRepository.findByEmailWithAddress(email)
                 .orElseThrow(() -> new AppException(ErrorEnum.NOT_FOUND_USER));
@@ -56,16 +72,32 @@ public class OrderService {
                 .filter(address1 -> address1.getId().equals(request.addressId()))
                 .findFirst().orElseThrow(() -> new AppException(ErrorEnum.ADDRESS_NOT_FOUND));
 
-        Cart cart = cartRepository.findByIdWithCartItem(user.getId())
-                .orElseThrow(() -> new AppException(ErrorEnum.CART_NOT_FOUND));
+        //lấy các dòng ra khỏi cart ngay, 2 checkout song song không đặt trùng dòng; order rollback thì dòng được trả lại
+        List<LiveCart.Line> cartItems = cartStore.claimLines(user.getId());
 
-        if(cart.getCartItems().size() == 0) {
+        if(cartItems.isEmpty()) {
             throw new AppException(ErrorEnum.CART_EMPTY);
         }
 
-        Set<CartItem> cartItems = cart.getCartItems();
+        //food + restaurant + ingredient của mọi dòng lấy trong 1 câu query, giá event lấy từ PricingEngine
+        //=> số query của checkout không tăng theo số dòng trong cart
+        Map<Long, Food> foods = foodRepository.findAllForCheckout(cartItems.stream().map(LiveCart.Line::foodId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Food::getId, food -> food));
+        Restaurant restaurant = null;
+        for (Food food : foods.values()) {
+            if(!food.getRestaurant().getId().equals(request.restaurantId())) {
+                throw new AppException(ErrorEnum.ORDER_RESTAURANT_MISMATCH);
+            }
+            restaurant = food.getRestaurant();
+        }
+        if(restaurant == null) {
+            throw new AppException(ErrorEnum.FOOD_NOT_FOUND);
+        }
+
+        Date now = new Date();
         Order order = Order.builder()
-                .createdAt(new Date())
+                .createdAt(now)
+                .statusUpdatedAt(now)
                 .orderStatus(OrderStatus.PENDING)
                 .address(address)
                 .restaurant(restaurant)
@@ -75,28 +107,28 @@ public class OrderService {
                 .payment(request.payment())
                 .build();
         Set<OrderItem> orderItems = new HashSet<>();
-        for (CartItem cartItem : cartItems) {
-            Food food = cartItem.getFood();
-            Event event = food.getEvent();
-            var totalPrice = cartItem.getTotalPrice();
-            var now = LocalDateTime.now();
-            if(event != null && event.isActive() &&  event.getEndTime().isAfter(now)) {
-                //log.info(event.getType().toString());
-                if(event.getType() == EventTypeEnum.PERCENT) {
-                    totalPrice = totalPrice - (int)(totalPrice*(event.getPercent()/100.0));
-                  //  log.info("Total Price" + totalPrice.toString());
-                }else {
-                    totalPrice = totalPrice - event.getAmount() * cartItem.getQuantity();
-                }
+        for (LiveCart.Line cartItem : cartItems) {
+            Food food = foods.get(cartItem.foodId());
+            if(food == null) {
+                throw new AppException(ErrorEnum.FOOD_NOT_FOUND);
             }
+            var totalPrice = pricingEngine.applyDiscount(cartItem.foodId(), cartItem.totalPrice(), cartItem.quantity());
 
-
+            Set<IngredientItem> orderIngredients = new HashSet<>();
+            for (IngredientItem ingredient : food.getIngredients()) {
+                if(cartItem.ingredientIds().contains(ingredient.getId())) {
+                    orderIngredients.add(ingredient);
+                }
+            }
+            if(orderIngredients.size() != cartItem.ingredientIds().size()) {
+                throw new AppException(ErrorEnum.INGREDIENTS_INVALID);
+            }
             OrderItem orderItem = OrderItem.builder()
-                    .food(cartItem.getFood())
+                    .food(food)
                     .order(order)
-                    .quantity(cartItem.getQuantity())
-                    .ingredients(new HashSet<>(cartItem.getIngredients()))
-                    .specialInstructions(cartItem.getSpecialInstructions())
+                    .quantity(cartItem.quantity())
+                    .ingredients(orderIngredients)
+                    .specialInstructions(cartItem.specialInstructions())
                     .totalPrice(totalPrice)
                     .build();
             orderItems.add(orderItem);
@@ -107,15 +139,20 @@ public class OrderService {
         }
         order.setOrderItems(orderItems);
         order.setTotalPrice(totalPriceOrder);
+        //không add vào restaurant.getOrders()/user.getOrders(): sẽ load toàn bộ order cũ chỉ để thêm 1 phần tử
+        //order + order item được insert theo batch khi flush (hibernate.jdbc.batch_size)
         Order newOrder = orderRepository.save(order);
-        restaurant.getOrders().add(newOrder);
-        user.getOrders().add(newOrder);
-        //clear cart
-        cart.removeAllCartItems();
-        cart.setTotalPrice(0L);
-        cartRepository.save(cart);
-
-
+        eventPublisher.publishEvent(OrderEvent.builder()
+                .type(OrderEvent.CREATED)
+                .orderId(newOrder.getId())
+                .restaurantId(restaurant.getId())
+                .customerId(user.getId())
+                .orderStatus(newOrder.getOrderStatus())
+                .totalPrice(newOrder.getTotalPrice())
+                .totalItem(newOrder.getTotalItem())
+                .createdAt(newOrder.getCreatedAt())
+                .at(new Date())
+                .build());
 
         OrderResponse orderResponse = orderMapper.toOrderResponses(newOrder);
         orderResponse.setCustomer(userMapper.toUserResponseMapper(user));
@@ -134,6 +171,9 @@ public class OrderService {
             orderItemResponses.add(orderItemResponse);
         }
         orderResponse.setOrderItems(orderItemResponses);
+        if(idempotencyKey != null) {
+            orderIdempotency.record(idempotencyKey, newOrder.getId(), orderResponse);
+        }
         return orderResponse;
     }
 
@@ -143,65 +183,128 @@ public class OrderService {
             Long orderId,
             UpdateStatusOrderRequest request
     ) {
-        if(request.status() < OrderStatus.PENDING.getValue() || request.status() > OrderStatus.CANCELLED.getValue()) {
+        OrderStatus target = toTargetStatus(request.status());
+        var email = SecurityContextHolder.getContext().getAuthentication().getName();
+
+        List<Long> changed = orderTransitionEngine.transition(List.of(orderId), target, target.allowedFrom(), email, null);
+        if(changed.isEmpty()) {
+            orderTransitionEngine.currentStatus(orderId, email, null)
+                    .orElseThrow(() -> new AppException(ErrorEnum.ORDER_NOT_FOUND));
             throw new AppException(ErrorEnum.ORDER_STATUS_INVALID);
         }
+    }
 
-        Order order = orderRepository.findById(orderId).orElseThrow(() -> new AppException(ErrorEnum.ORDER_NOT_FOUND));
-
-
-        if(request.status() != OrderStatus.CANCELLED.getValue()) {
-            if(order.getOrderStatus().getValue() > request.status()) {
-                throw new AppException(ErrorEnum.ORDER_STATUS_INVALID);
-            }
-        }
+    //nhà hàng chuyển nhiều order cùng lúc (vd confirm cả loạt), 1 câu UPDATE cho cả danh sách
+    @Transactional
+    @PreAuthorize("hasRole('RESTAURANT')")
+    public BulkUpdateStatusOrderResponse updateStatusOrders(BulkUpdateStatusOrderRequest request) {
+        OrderStatus target = toTargetStatus(request.status());
+        var email = SecurityContextHolder.getContext().getAuthentication().getName();
 
-        order.setOrderStatus(OrderStatus.fromValue(request.status()));
-        orderRepository.save(order);
+        Set<Long> orderIds = new LinkedHashSet<>(request.orderIds());
+        List<Long> changed = orderTransitionEngine.transition(orderIds, target, target.allowedFrom(), email, null);
+        return new BulkUpdateStatusOrderResponse(target, orderIds.size(), changed.size(), changed);
     }
 
     @Transactional
     @PreAuthorize("hasRole('USER')")
     public void cancelOrder(Long orderId) {
-        Order order = orderRepository.findById(orderId).orElseThrow(() -> new AppException(ErrorEnum.ORDER_NOT_FOUND));
-        if(order.getOrderStatus() != OrderStatus.PENDING) {
+        var email = SecurityContextHolder.getContext().getAuthentication().getName();
+        //khách chỉ được hủy khi nhà hàng chưa xác nhận
+        List<Long> changed = orderTransitionEngine.transition(List.of(orderId), OrderStatus.CANCELLED,
+                EnumSet.of(OrderStatus.PENDING), null, email);
+        if(changed.isEmpty()) {
+            orderTransitionEngine.currentStatus(orderId, null, email)
+                    .orElseThrow(() -> new AppException(ErrorEnum.ORDER_NOT_FOUND));
             throw new AppException(ErrorEnum.ORDER_HAS_CONFIRMED);
         }
-        order.setOrderStatus(OrderStatus.CANCELLED);
-        orderRepository.save(order);
     }
 
+    private OrderStatus toTargetStatus(Integer status) {
+        if(status == null || status < OrderStatus.PENDING.getValue() || status > OrderStatus.CANCELLED.getValue()) {
+            throw new AppException(ErrorEnum.ORDER_STATUS_INVALID);
+        }
+        return OrderStatus.fromValue(status);
+    }
+
+    @PreAuthorize("hasRole('RESTAURANT')")
+    public SseEmitter streamRestaurantOrders() {
+        return orderEventBus.subscribeRestaurant(identityCache.currentRestaurantId());
+    }
+
+    @PreAuthorize("hasRole('USER')")
+    public SseEmitter streamMyOrders() {
+        return orderEventBus.subscribeCustomer(identityCache.current().userId());
+    }
+
+    @Transactional(readOnly = true)
     @PreAuthorize("hasRole('USER')")
     public List<OrderOptimizeResponse> getOrderByUserByStatus(
             int status
     ) {
         var email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmailWithOrder(email)
+        User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new AppException(ErrorEnum.NOT_FOUND_USER));
 
-        Set<Order> orders = user.getOrders();
-        List<Order> sortedOrders = orders.stream()
-                .sorted(Comparator.comparing(Order::getCreatedAt).reversed())
-                .collect(Collectors.toList());
-        var ordersFilter = sortedOrders;
-        if(status >= 0) {
-            ordersFilter = orders.stream().filter(order -> order.getOrderStatus().getValue() == status).toList();
-        }
+        return orderRepository.findHistoryByCustomer(user.getId(), toStatusFilter(status), null, null, Pageable.unpaged());
+    }
 
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasRole('USER')")
+    public CursorPaginationResponse getOrderHistoryByUser(
+            int status,
+            String cursor,
+            int size
+    ) {
+        var email = SecurityContextHolder.getContext().getAuthentication().getName();
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new AppException(ErrorEnum.NOT_FOUND_USER));
 
+        var pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        CursorUtil.Cursor after = CursorUtil.decode(cursor);
+        //lấy thêm 1 dòng để biết còn trang sau hay không
+        List<OrderOptimizeResponse> orders = orderRepository.findHistoryByCustomer(
+                user.getId(),
+                toStatusFilter(status),
+                after == null ? null : after.createdAt(),
+                after == null ? null : after.id(),
+                PageRequest.of(0, pageSize + 1)
+        );
+
+        boolean hasNext = orders.size() > pageSize;
+        List<OrderOptimizeResponse> content = hasNext ? orders.subList(0, pageSize) : orders;
+        String nextCursor = null;
+        if(hasNext) {
+            OrderOptimizeResponse last = content.get(content.size() - 1);
+            nextCursor = CursorUtil.encode(last.getCreatedAt(), last.getId());
+        }
+        return CursorPaginationResponse.builder()
+                .content(content)
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .size(content.size())
+                .build();
+    }
 
-        //List<OrderResponse> orderResponses = covertOrdersToOrderResponse(sortedOrders);
-        List<OrderOptimizeResponse> orderOptimizeResponses = new ArrayList<>();
-        for (Order order : ordersFilter) {
-            OrderOptimizeResponse orderOptimizeResponse = new OrderOptimizeResponse();
-            orderOptimizeResponse.setId(order.getId());
-            orderOptimizeResponse.setOrderStatus(order.getOrderStatus());
-            orderOptimizeResponse.setCreatedAt(order.getCreatedAt());
-            orderOptimizeResponse.setRestaurant(order.getRestaurant().getName());
-            orderOptimizeResponse.setTotalPrice(order.getTotalPrice());
-            orderOptimizeResponses.add(orderOptimizeResponse);
+    //phí ship + ETA cho màn cart, không tạo order
+    @PreAuthorize("hasRole('USER')")
+    public DeliveryQuoteResponse getDeliveryQuote(Long restaurantId, Long addressId) {
+        Long userId = identityCache.current().userId();
+        Address address = addressRepository.findByIdAndCustomerId(addressId, userId)
+                .orElseThrow(() -> new AppException(ErrorEnum.ADDRESS_NOT_FOUND));
+        List<Object[]> rows = restaurantRepository.findLocationById(restaurantId);
+        if(rows.isEmpty()) {
+            throw new AppException(ErrorEnum.RES_NOT_FOUND);
+        }
+        Object[] location = rows.get(0);
+        if((Boolean) location[0]) {
+            throw new AppException(ErrorEnum.RES_DISABLE);
         }
-        return orderOptimizeResponses;
+        if(location[1] == null || location[2] == null || address.getLatitude() == null || address.getLongitude() == null) {
+            throw new AppException(ErrorEnum.DELIVERY_LOCATION_MISSING);
+        }
+        return deliveryEstimator.quote(restaurantId, (Double) location[1], (Double) location[2],
+                addressId, address.getLatitude(), address.getLongitude());
     }
 
     @PreAuthorize("hasRole('USER')")
@@ -217,32 +320,55 @@ public class OrderService {
     }
 
 
+    @Transactional(readOnly = true)
     @PreAuthorize("hasRole('RESTAURANT')")
     public List<OrderResponse> getOrderByRestaurantByStatus(
             int status
     ) {
         //nếu status -1 thi lấy hết
-
         var email = SecurityContextHolder.getContext().getAuthentication().getName();
+        Restaurant restaurant = restaurantRepository.findByOwnerEmail(email)
+                .orElseThrow(() -> new AppException(ErrorEnum.RES_NOT_FOUND));
 
+        List<Order> orders = orderRepository.findAllByRestaurant(restaurant.getId(), toStatusFilter(status));
+        return covertOrdersToOrderResponse(orders, restaurant.getName());
+    }
 
-        Restaurant restaurant = restaurantRepository.findRestaurantByEmailWithOrders(email)
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasRole('RESTAURANT')")
+    public CursorPaginationResponse getOrderBoardByRestaurant(
+            int status,
+            String since,
+            int size
+    ) {
+        var email = SecurityContextHolder.getContext().getAuthentication().getName();
+        Restaurant restaurant = restaurantRepository.findByOwnerEmail(email)
                 .orElseThrow(() -> new AppException(ErrorEnum.RES_NOT_FOUND));
-        Set<Order> orders = restaurant.getOrders();
-
-        List<Order> sortedOrders = orders.stream()
-                .sorted(Comparator.comparing(Order::getCreatedAt).reversed())
-                .collect(Collectors.toList());
-        var ordersFilter = sortedOrders;
-        if(status >= 0) {
-            //log.info("STATUS " + status);
-            ordersFilter = sortedOrders.stream().filter(order -> order.getOrderStatus().getValue() == status).toList();
 
+        var pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        CursorUtil.Cursor after = CursorUtil.decode(since);
+        //board sắp xếp cũ -> mới, client giữ cursor của đơn cuối cùng để lấy đơn mới
+        List<Order> orders = orderRepository.findBoardByRestaurant(
+                restaurant.getId(),
+                toStatusFilter(status),
+                after == null ? null : after.createdAt(),
+                after == null ? null : after.id(),
+                PageRequest.of(0, pageSize + 1)
+        );
+
+        boolean hasNext = orders.size() > pageSize;
+        List<Order> page = hasNext ? orders.subList(0, pageSize) : orders;
+        String nextCursor = since;
+        if(!page.isEmpty()) {
+            Order last = page.get(page.size() - 1);
+            nextCursor = CursorUtil.encode(last.getCreatedAt(), last.getId());
         }
-
-        List<OrderResponse> orderResponses = covertOrdersToOrderResponse(ordersFilter);
-
-        return orderResponses;
+        return CursorPaginationResponse.builder()
+                .content(covertOrdersToOrderResponse(page, restaurant.getName()))
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .size(page.size())
+                .build();
     }
 
 
@@ -274,17 +400,54 @@ public class OrderService {
 
 
 
-    private List<OrderResponse> covertOrdersToOrderResponse(List<Order> orders) {
-        List<OrderResponse> orderResponses = new ArrayList<>();
+    //orders đã fetch customer + address, items và ingredients lấy theo IN-list (2 query cho cả trang)
+    private List<OrderResponse> covertOrdersToOrderResponse(List<Order> orders, String restaurantName) {
+        if(orders.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> orderIds = orders.stream().map(Order::getId).toList();
+        List<OrderItem> orderItems = orderItemRepository.findByOrderIdsWithFood(orderIds);
+
+        Map<Long, List<IngredientItemResponse>> ingredientsByItem = new HashMap<>();
+        if(!orderItems.isEmpty()) {
+            List<Long> orderItemIds = orderItems.stream().map(OrderItem::getId).toList();
+            for (Object[] row : orderItemRepository.findIngredientsByOrderItemIds(orderItemIds)) {
+                ingredientsByItem.computeIfAbsent((Long) row[0], k -> new ArrayList<>())
+                        .add(ingredientItemMapper.toIngredientItemResponse((IngredientItem) row[1]));
+            }
+        }
+
+        Map<Long, List<OrderItemResponse>> itemsByOrder = new HashMap<>();
+        for (OrderItem orderItem : orderItems) {
+            OrderItemResponse orderItemResponse = orderItemMapper.toOrderItemResponse(orderItem);
+            orderItemResponse.setIngredients(ingredientsByItem.getOrDefault(orderItem.getId(), new ArrayList<>()));
+            itemsByOrder.computeIfAbsent(orderItem.getOrder().getId(), k -> new ArrayList<>()).add(orderItemResponse);
+        }
 
+        List<OrderResponse> orderResponses = new ArrayList<>();
         for (Order order : orders) {
             User customer = order.getCustomer();
-            UserResponse userResponse = new UserResponse(customer.getId(),customer.getFullName(), customer.getEmail(), null);
-            OrderResponse orderResponse = covertOneOrderToOrderResponse(order);
-            orderResponse.setCustomer(userResponse);
+            Address address = order.getAddress();
+            OrderResponse orderResponse = orderMapper.toOrderResponses(order);
+            orderResponse.setCustomer(new UserResponse(customer.getId(),customer.getFullName(), customer.getEmail(), null));
+            orderResponse.setRestaurant(restaurantName);
+            AddressResponse addressResponse = addressMapper.toAddressResponse(address);
+            addressResponse.setPhone(address.getCustomerPhone());
+            orderResponse.setAddress(addressResponse);
+            orderResponse.setOrderItems(itemsByOrder.getOrDefault(order.getId(), new ArrayList<>()));
             orderResponses.add(orderResponse);
         }
-
         return orderResponses;
     }
+
+    //status < 0 thì lấy hết
+    private OrderStatus toStatusFilter(int status) {
+        if(status < 0) {
+            return null;
+        }
+        if(status > OrderStatus.CANCELLED.getValue()) {
+            throw new AppException(ErrorEnum.ORDER_STATUS_INVALID);
+        }
+        return OrderStatus.fromValue(status);
+    }
 }
@@ -0,0 +1,71 @@
+package com.dev.service;
+
+import com.dev.dto.response.OrderEvent;
+import com.dev.enums.OrderStatus;
+import com.dev.repository.OrderRepository;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/*
+ * Chuyển trạng thái order bằng 1 câu UPDATE có điều kiện (WHERE orderStatus IN from),
+ * không đọc order lên rồi save: cancel và confirm cùng lúc thì chỉ 1 câu UPDATE khớp.
+ * Kết quả lấy theo số dòng bị ảnh hưởng; chỉ khi có dòng đổi mới đọc id để đẩy event SSE.
+ * Gọi trong transaction của OrderService.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@RequiredArgsConstructor
+public class OrderTransitionEngine {
+
+    OrderRepository orderRepository;
+    ApplicationEventPublisher eventPublisher;
+
+    //trả về id các order đã chuyển sang target, order sai trạng thái/không thuộc owner bị bỏ qua
+    public List<Long> transition(
+            Collection<Long> orderIds,
+            OrderStatus target,
+            Set<OrderStatus> from,
+            String restaurantEmail,
+            String customerEmail
+    ) {
+        if(orderIds.isEmpty() || from.isEmpty()) {
+            return List.of();
+        }
+        Date now = new Date();
+        int updated = orderRepository.transitionStatus(orderIds, target, from, restaurantEmail, customerEmail, now,
+                target == OrderStatus.CONFIRMED ? now : null, target == OrderStatus.SHIPPING ? now : null);
+        if(updated == 0) {
+            return List.of();
+        }
+        List<Long> changedIds = new ArrayList<>(updated);
+        for (Object[] row : orderRepository.findTransitioned(orderIds, target, now)) {
+            changedIds.add((Long) row[0]);
+            eventPublisher.publishEvent(OrderEvent.builder()
+                    .type(OrderEvent.STATUS_CHANGED)
+                    .orderId((Long) row[0])
+                    .restaurantId((Long) row[1])
+                    .customerId((Long) row[2])
+                    .orderStatus(target)
+                    .createdAt((Date) row[3])
+                    .confirmedAt((Date) row[4])
+                    .at(now)
+                    .build());
+        }
+        return changedIds;
+    }
+
+    //chỉ dùng khi transition thất bại, để phân biệt không tìm thấy với sai trạng thái
+    public Optional<OrderStatus> currentStatus(Long orderId, String restaurantEmail, String customerEmail) {
+        return orderRepository.findStatus(orderId, restaurantEmail, customerEmail);
+    }
+}
@@ -1,15 +1,11 @@
 package com.dev.service;
 
+import com.dev.cache.IdentityCache;
 import com.dev.config.VNPAYConfig;
 import com.dev.dto.request.PaymentRequest;
-import com.dev.enums.ErrorEnum;
-import com.dev.exception.AppException;
-import com.dev.models.User;
-import com.dev.repository.UserRepository;
 import com.dev.utils.VNPayUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
@@ -18,10 +14,9 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class PaymentService {
     private final VNPAYConfig vnPayConfig;
-    private final UserRepository userRepository;
+    private final IdentityCache identityCache;
     public String createVnPayPayment(PaymentRequest body,HttpServletRequest request) {
-        var email = SecurityContextHolder.getContext().getAuthentication().getName();
-        userRepository.findByEmail(email).orElseThrow(() -> new AppException(ErrorEnum.NOT_FOUND_USER));
+        identityCache.current();
         long amount = body.getAmount() * 100L;
         String bankCode = body.getBankCode();
         Map<String, String> vnpParamsMap = vnPayConfig.getVNPayConfig();
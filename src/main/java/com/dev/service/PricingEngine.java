@@ -0,0 +1,269 @@
+package com.dev.service;
+
+import com.dev.cache.EventChangedEvent;
+import com.dev.dto.response.EventResponse;
+import com.dev.enums.EventTypeEnum;
+import com.dev.models.Event;
+import com.dev.models.Food;
+import com.dev.repository.EventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Bảng giảm giá theo food id, giữ trong bộ nhớ.
+ * - scheduledByFood: event chưa kết thúc của food (có thể chưa tới startTime)
+ * - activeByFood: event đang có hiệu lực, đọc ra là dùng luôn không cần so sánh thời gian
+ * Các mốc startTime/endTime nằm trong priority queue, 1 timer thức dậy đúng mốc gần nhất
+ * để chuyển event sang active / hết hạn.
+ * Event sửa ở node khác không tới được EventChangedEvent của node này: reload() đọc lại các event còn hạn
+ * mỗi event.pricing.reload-ms và chỉ thay những event khác với bản đang giữ.
+ */
+@Slf4j
+@Service
+public class PricingEngine {
+
+    private final EventRepository eventRepository;
+
+    private final Map<Long, Discount> events = new HashMap<>();
+    private final Map<Long, Discount> scheduledByFood = new ConcurrentHashMap<>();
+    private final Map<Long, Discount> activeByFood = new ConcurrentHashMap<>();
+    private final PriorityQueue<Transition> transitions = new PriorityQueue<>(Comparator.comparingLong(Transition::at));
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "pricing-engine-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> wakeup;
+    private long wakeupAt = Long.MAX_VALUE;
+
+    public PricingEngine(EventRepository eventRepository) {
+        this.eventRepository = eventRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<Event> upcoming = eventRepository.findUpcomingWithFoods(LocalDateTime.now());
+        synchronized (this) {
+            for (Event event : upcoming) {
+                Discount discount = toDiscount(event);
+                if(discount != null) {
+                    put(discount);
+                }
+            }
+            advance();
+        }
+        log.info("Pricing engine loaded {} events", upcoming.size());
+    }
+
+    //đồng bộ với DB: event bị xóa/tắt ở node khác thì bỏ, event mới/sửa thì nạp lại
+    @Scheduled(fixedDelayString = "${event.pricing.reload-ms:30000}", initialDelayString = "${event.pricing.reload-ms:30000}")
+    public void reload() {
+        Map<Long, Discount> loaded = new HashMap<>();
+        for (Event event : eventRepository.findUpcomingWithFoods(LocalDateTime.now())) {
+            Discount discount = toDiscount(event);
+            if(discount != null) {
+                loaded.put(discount.eventId(), discount);
+            }
+        }
+        int changed = 0;
+        synchronized (this) {
+            for (Long eventId : new ArrayList<>(events.keySet())) {
+                if(!loaded.containsKey(eventId)) {
+                    remove(eventId);
+                    changed++;
+                }
+            }
+            for (Discount discount : loaded.values()) {
+                //không đổi thì giữ nguyên, request đang đọc không thấy food mất giảm giá trong lúc reload
+                if(discount.equals(events.get(discount.eventId()))) {
+                    continue;
+                }
+                remove(discount.eventId());
+                put(discount);
+                changed++;
+            }
+            advance();
+        }
+        if(changed > 0) {
+            log.info("Pricing engine reloaded, {} events changed", changed);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    public Optional<Discount> activeDiscount(Long foodId) {
+        Discount discount = activeByFood.get(foodId);
+        //phòng khi timer trễ vài ms so với endTime
+        if(discount == null || System.currentTimeMillis() >= discount.endMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(discount);
+    }
+
+    public long applyDiscount(Long foodId, long totalPrice, int quantity) {
+        return activeDiscount(foodId).map(d -> d.apply(totalPrice, quantity)).orElse(totalPrice);
+    }
+
+    public EventResponse activeEventResponse(Long foodId) {
+        return activeDiscount(foodId).map(Discount::toEventResponse).orElse(null);
+    }
+
+    //food đã có event còn hạn (đang chạy hoặc sắp chạy)
+    public boolean hasDiscount(Long foodId) {
+        Discount discount = scheduledByFood.get(foodId);
+        return discount != null && System.currentTimeMillis() < discount.endMillis();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventChanged(EventChangedEvent changed) {
+        Optional<Event> event = eventRepository.findByIdWithFoods(changed.eventId());
+        synchronized (this) {
+            remove(changed.eventId());
+            event.map(PricingEngine::toDiscount).ifPresent(this::put);
+            advance();
+        }
+    }
+
+    //null: event đã tắt hoặc hết hạn
+    private static Discount toDiscount(Event event) {
+        if(!event.isActive() || event.getEndTime() == null || event.getStartTime() == null) {
+            return null;
+        }
+        Set<Long> foodIds = new HashSet<>();
+        for (Food food : event.getFoods()) {
+            foodIds.add(food.getId());
+        }
+        Discount discount = new Discount(
+                event.getId(),
+                event.getCode(),
+                event.getType(),
+                event.getPercent(),
+                event.getAmount(),
+                event.getStartTime(),
+                event.getEndTime(),
+                event.getCreatedAt(),
+                toMillis(event.getStartTime()),
+                toMillis(event.getEndTime()),
+                Set.copyOf(foodIds)
+        );
+        return discount.endMillis() <= System.currentTimeMillis() ? null : discount;
+    }
+
+    private void put(Discount discount) {
+        events.put(discount.eventId(), discount);
+        for (Long foodId : discount.foodIds()) {
+            scheduledByFood.put(foodId, discount);
+        }
+        transitions.add(new Transition(discount.startMillis(), discount, true));
+        transitions.add(new Transition(discount.endMillis(), discount, false));
+    }
+
+    private void remove(Long eventId) {
+        Discount discount = events.remove(eventId);
+        if(discount == null) {
+            return;
+        }
+        for (Long foodId : discount.foodIds()) {
+            scheduledByFood.remove(foodId, discount);
+            activeByFood.remove(foodId, discount);
+        }
+        //transition cũ vẫn nằm trong queue, bị bỏ qua khi tới hạn vì discount không còn trong events
+    }
+
+    //áp dụng các mốc đã tới hạn rồi hẹn giờ cho mốc tiếp theo
+    private void advance() {
+        long now = System.currentTimeMillis();
+        while (!transitions.isEmpty() && transitions.peek().at() <= now) {
+            Transition transition = transitions.poll();
+            Discount discount = transition.discount();
+            if(events.get(discount.eventId()) != discount) {
+                continue;
+            }
+            if(transition.activate()) {
+                for (Long foodId : discount.foodIds()) {
+                    if(scheduledByFood.get(foodId) == discount) {
+                        activeByFood.put(foodId, discount);
+                    }
+                }
+            } else {
+                events.remove(discount.eventId());
+                for (Long foodId : discount.foodIds()) {
+                    scheduledByFood.remove(foodId, discount);
+                    activeByFood.remove(foodId, discount);
+                }
+            }
+        }
+        long next = transitions.isEmpty() ? Long.MAX_VALUE : transitions.peek().at();
+        if(next != wakeupAt) {
+            if(wakeup != null) {
+                wakeup.cancel(false);
+            }
+            wakeupAt = next;
+            wakeup = next == Long.MAX_VALUE ? null : timer.schedule(() -> {
+                synchronized (this) {
+                    wakeupAt = Long.MAX_VALUE;
+                    wakeup = null;
+                    advance();
+                }
+            }, Math.max(0, next - now), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record Transition(long at, Discount discount, boolean activate) {
+    }
+
+    public record Discount(
+            Long eventId,
+            String code,
+            EventTypeEnum type,
+            Integer percent,
+            Long amount,
+            LocalDateTime startTime,
+            LocalDateTime endTime,
+            Date createdAt,
+            long startMillis,
+            long endMillis,
+            Set<Long> foodIds
+    ) {
+        //totalPrice là giá của cả cart item (đã nhân quantity)
+        public long apply(long totalPrice, int quantity) {
+            if(type == EventTypeEnum.PERCENT) {
+                return totalPrice - (int)(totalPrice*(percent/100.0));
+            }
+            return totalPrice - amount * quantity;
+        }
+
+        public EventResponse toEventResponse() {
+            return EventResponse.builder()
+                    .id(eventId)
+                    .code(code)
+                    .type(type)
+                    .percent(percent)
+                    .amount(amount)
+                    .startTime(startTime)
+                    .endTime(endTime)
+                    .createdAt(createdAt)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.dev.service;
+
+import com.dev.cache.RevokedTokenFilter;
+import com.dev.enums.ErrorEnum;
+import com.dev.exception.AppException;
+import com.dev.models.Token;
+import com.dev.models.User;
+import com.dev.repository.TokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+
+/*
+ * Refresh token lưu theo SHA-256 (64 ký tự hex, unique index) thay vì cả chuỗi JWT, mỗi thiết bị 1 dòng.
+ * Token thu hồi (logout/rotate) được đưa vào RevokedTokenFilter để lần refresh sau bị chặn trước khi query.
+ */
+@Service
+public class RefreshTokenStore {
+
+    private final TokenRepository tokenRepository;
+    private final RevokedTokenFilter revokedTokenFilter;
+    private final int maxDevices;
+
+    public RefreshTokenStore(
+            TokenRepository tokenRepository,
+            RevokedTokenFilter revokedTokenFilter,
+            @Value("${auth.refresh.max-devices:10}") int maxDevices
+    ) {
+        this.tokenRepository = tokenRepository;
+        this.revokedTokenFilter = revokedTokenFilter;
+        this.maxDevices = maxDevices;
+    }
+
+    //đăng nhập trên thiết bị mới, quá maxDevices thì bỏ các thiết bị cũ nhất
+    @Transactional
+    public void issue(User user, String refreshToken, Date expiresAt) {
+        tokenRepository.save(Token.builder()
+                .user(user)
+                .tokenHash(digest(refreshToken))
+                .createdAt(new Date())
+                .expiresAt(expiresAt)
+                .build());
+        List<Long> ids = tokenRepository.findIdsByUserIdNewestFirst(user.getId());
+        if(ids.size() > maxDevices) {
+            tokenRepository.deleteByIds(ids.subList(maxDevices, ids.size()));
+        }
+    }
+
+    //token đã thu hồi hoặc không có trong DB -> UNAUTHENTICATED
+    public Token findActive(String refreshToken) {
+        String tokenHash = digest(refreshToken);
+        if(revokedTokenFilter.mightContain(tokenHash)) {
+            throw new AppException(ErrorEnum.UNAUTHENTICATED);
+        }
+        return tokenRepository.findByTokenHashWithUser(tokenHash)
+                .orElseThrow(() -> new AppException(ErrorEnum.UNAUTHENTICATED));
+    }
+
+    //thay token cũ bằng token mới trong 1 câu UPDATE, 2 request refresh cùng token thì 1 request bị từ chối
+    public void rotate(Token current, String newRefreshToken, Date expiresAt) {
+        if(tokenRepository.rotate(current.getTokenHash(), digest(newRefreshToken), expiresAt) == 0) {
+            throw new AppException(ErrorEnum.UNAUTHENTICATED);
+        }
+        revokedTokenFilter.put(current.getTokenHash());
+    }
+
+    //logout 1 thiết bị
+    public void revoke(Long userId, String refreshToken) {
+        String tokenHash = digest(refreshToken);
+        if(tokenRepository.deleteByTokenHashAndUserId(tokenHash, userId) > 0) {
+            revokedTokenFilter.put(tokenHash);
+        }
+    }
+
+    //logout mọi thiết bị
+    @Transactional
+    public void revokeAll(Long userId) {
+        List<String> tokenHashes = tokenRepository.findTokenHashesByUserId(userId);
+        if(tokenHashes.isEmpty()) {
+            return;
+        }
+        tokenRepository.deleteByUserId(userId);
+        tokenHashes.forEach(revokedTokenFilter::put);
+    }
+
+    public static String digest(String refreshToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
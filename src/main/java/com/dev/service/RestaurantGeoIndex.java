@@ -0,0 +1,315 @@
+package com.dev.service;
+
+import com.dev.cache.RestaurantChangedEvent;
+import com.dev.repository.RestaurantRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Lưới ô vuông theo độ (restaurant.geo.cell-degrees, mặc định 0.05° ~ 5.5km) chứa các nhà hàng đang mở có tọa độ.
+ * Query bán kính N km chỉ duyệt các ô nằm trong bounding box của vòng tròn, lọc lại theo khoảng cách,
+ * giữ heap tối đa (offset + limit) phần tử nên không phải sort toàn bộ kết quả,
+ * offset + limit bị chặn ở max-results nên client không thể bắt giữ heap tùy ý lớn.
+ * Nhà hàng đóng cửa/bị disable bị xóa khỏi lưới, create/update/đổi trạng thái đều đi qua RestaurantChangedEvent;
+ * node khác không nhận event nên lưới được build lại theo refresh-ms.
+ * Không xử lý vòng tròn cắt qua kinh tuyến 180.
+ */
+@Slf4j
+@Service
+public class RestaurantGeoIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    private final RestaurantRepository restaurantRepository;
+    private final double cellDegrees;
+    private final double maxRadiusKm;
+    private final int maxResults;
+    private final int latCells;
+    private final int lonCells;
+
+    //cell key -> các điểm trong ô, mảng liền nhau để duyệt nhanh, sửa thì copy lại ô đó
+    private Map<Long, Cell> cells = new HashMap<>();
+    //restaurantId -> cell key
+    private Map<Long, Long> cellOf = new HashMap<>();
+    //put/remove chạy trong lúc rebuild đọc DB: restaurantId -> {lat, lon}, null = đã xóa. null khi không rebuild
+    private Map<Long, double[]> changedDuringRebuild;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public RestaurantGeoIndex(
+            RestaurantRepository restaurantRepository,
+            @Value("${restaurant.geo.cell-degrees:0.05}") double cellDegrees,
+            @Value("${restaurant.geo.max-radius-km:20}") double maxRadiusKm,
+            @Value("${restaurant.geo.max-results:1000}") int maxResults
+    ) {
+        this.restaurantRepository = restaurantRepository;
+        this.cellDegrees = cellDegrees;
+        this.maxRadiusKm = maxRadiusKm;
+        this.maxResults = Math.max(maxResults, 1);
+        this.latCells = (int) Math.ceil(180 / cellDegrees) + 1;
+        this.lonCells = (int) Math.ceil(360 / cellDegrees) + 1;
+    }
+
+    public record Hit(Long restaurantId, double distanceKm) {
+    }
+
+    public record Result(List<Hit> hits, int totalElements) {
+    }
+
+    private record Cell(long[] ids, double[] latitudes, double[] longitudes) {
+
+        Cell with(long id, double latitude, double longitude) {
+            int n = ids.length;
+            Cell cell = new Cell(Arrays.copyOf(ids, n + 1), Arrays.copyOf(latitudes, n + 1), Arrays.copyOf(longitudes, n + 1));
+            cell.ids[n] = id;
+            cell.latitudes[n] = latitude;
+            cell.longitudes[n] = longitude;
+            return cell;
+        }
+
+        Cell without(long id) {
+            int n = ids.length;
+            for (int i = 0; i < n; i++) {
+                if(ids[i] != id) {
+                    continue;
+                }
+                //đưa phần tử cuối vào chỗ bị xóa
+                Cell cell = new Cell(Arrays.copyOf(ids, n - 1), Arrays.copyOf(latitudes, n - 1), Arrays.copyOf(longitudes, n - 1));
+                if(i < n - 1) {
+                    cell.ids[i] = ids[n - 1];
+                    cell.latitudes[i] = latitudes[n - 1];
+                    cell.longitudes[i] = longitudes[n - 1];
+                }
+                return cell;
+            }
+            return this;
+        }
+    }
+
+    private static final Cell EMPTY = new Cell(new long[0], new double[0], new double[0]);
+
+    //build lưới mới ngoài lock rồi thay 1 lần, query không bị chặn trong lúc đọc DB.
+    //put/remove xảy ra sau lúc bắt đầu đọc có thể không có trong rows nên được áp lại sau khi thay
+    @PostConstruct
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<Object[]> rows = restaurantRepository.findGeoRows();
+        Map<Long, Long> newCellOf = new HashMap<>(rows.size() * 2);
+        Map<Long, List<Object[]>> rowsByCell = new HashMap<>();
+        for (Object[] row : rows) {
+            long cell = cellKey((Double) row[1], (Double) row[2]);
+            newCellOf.put((Long) row[0], cell);
+            rowsByCell.computeIfAbsent(cell, key -> new ArrayList<>()).add(row);
+        }
+        Map<Long, Cell> newCells = new HashMap<>(rowsByCell.size() * 2);
+        rowsByCell.forEach((key, cellRows) -> {
+            int n = cellRows.size();
+            Cell cell = new Cell(new long[n], new double[n], new double[n]);
+            for (int i = 0; i < n; i++) {
+                Object[] row = cellRows.get(i);
+                cell.ids()[i] = (Long) row[0];
+                cell.latitudes()[i] = (Double) row[1];
+                cell.longitudes()[i] = (Double) row[2];
+            }
+            newCells.put(key, cell);
+        });
+        lock.writeLock().lock();
+        try {
+            cells = newCells;
+            cellOf = newCellOf;
+            changedDuringRebuild.forEach((id, position) -> {
+                removeLocked(id);
+                if(position != null) {
+                    putLocked(id, position[0], position[1]);
+                }
+            });
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Geo index built for {} restaurants", rows.size());
+    }
+
+    //node khác mở/đóng cửa, đổi tọa độ: lưới ở node này đúng lại sau tối đa refresh-ms
+    @Scheduled(fixedDelayString = "${restaurant.geo.refresh-ms:60000}", initialDelayString = "${restaurant.geo.refresh-ms:60000}")
+    public void refresh() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRestaurantChanged(RestaurantChangedEvent event) {
+        reindex(event.restaurantId());
+    }
+
+    public void reindex(Long restaurantId) {
+        List<Object[]> rows = restaurantRepository.findGeoRowById(restaurantId);
+        if(rows.isEmpty()) {
+            //đóng cửa, bị disable hoặc chưa có tọa độ
+            remove(restaurantId);
+            return;
+        }
+        Object[] row = rows.get(0);
+        put(restaurantId, (Double) row[1], (Double) row[2]);
+    }
+
+    public void put(Long restaurantId, double latitude, double longitude) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(restaurantId);
+            putLocked(restaurantId, latitude, longitude);
+            if(changedDuringRebuild != null) {
+                changedDuringRebuild.put(restaurantId, new double[]{latitude, longitude});
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long restaurantId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(restaurantId);
+            if(changedDuringRebuild != null) {
+                changedDuringRebuild.put(restaurantId, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return cellOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int maxResults() {
+        return maxResults;
+    }
+
+    //bán kính bị chặn trong (0, maxRadiusKm], kết quả gần nhất trước, cùng khoảng cách thì theo id
+    //chỉ xếp hạng được maxResults điểm gần nhất, offset vượt quá thì trả về trang rỗng (totalElements vẫn đúng)
+    public Result nearby(double latitude, double longitude, double radiusKm, long offset, int limit) {
+        double radius = Math.min(Math.max(radiusKm, 0), maxRadiusKm);
+        int keep = (int) Math.min(Math.max(offset, 0) + Math.max(limit, 0), maxResults);
+        Comparator<Hit> nearestFirst = Comparator.comparingDouble(Hit::distanceKm).thenComparing(Hit::restaurantId);
+        //max-heap: phần tử xa nhất ở đầu để bị thay khi gặp điểm gần hơn, không cấp trước theo keep
+        PriorityQueue<Hit> heap = new PriorityQueue<>(nearestFirst.reversed());
+        int total = 0;
+
+        double latDelta = radius / KM_PER_DEGREE;
+        //cos gần 0 ở 2 cực, chặn lại để bounding box không phủ cả địa cầu theo kinh độ
+        double lonDelta = radius / (KM_PER_DEGREE * Math.max(Math.cos(Math.toRadians(latitude)), 0.01));
+        int minLat = latIndex(latitude - latDelta);
+        int maxLat = latIndex(latitude + latDelta);
+        int minLon = lonIndex(longitude - lonDelta);
+        int maxLon = lonIndex(longitude + lonDelta);
+
+        //lọc bằng xấp xỉ equirectangular (sai số không đáng kể trong vài chục km), chỉ tính haversine cho điểm vào heap
+        double cosLat = Math.cos(Math.toRadians(latitude));
+        double radiusSquared = (radius / KM_PER_DEGREE) * (radius / KM_PER_DEGREE);
+        double worstSquared = Double.MAX_VALUE;
+        lock.readLock().lock();
+        try {
+            for (int latIdx = minLat; latIdx <= maxLat; latIdx++) {
+                for (int lonIdx = minLon; lonIdx <= maxLon; lonIdx++) {
+                    Cell cell = cells.get((long) latIdx * lonCells + lonIdx);
+                    if(cell == null) {
+                        continue;
+                    }
+                    long[] ids = cell.ids();
+                    double[] latitudes = cell.latitudes();
+                    double[] longitudes = cell.longitudes();
+                    for (int i = 0; i < ids.length; i++) {
+                        double dy = latitudes[i] - latitude;
+                        double dx = (longitudes[i] - longitude) * cosLat;
+                        double squared = dx * dx + dy * dy;
+                        if(squared > radiusSquared) {
+                            continue;
+                        }
+                        total++;
+                        //heap đã đủ và điểm này xa hơn hẳn điểm xa nhất thì bỏ qua, không tạo Hit
+                        if(keep == 0 || (heap.size() == keep && squared > worstSquared)) {
+                            continue;
+                        }
+                        Hit hit = new Hit(ids[i], distanceKm(latitude, longitude, latitudes[i], longitudes[i]));
+                        if(heap.size() < keep) {
+                            heap.add(hit);
+                        } else if(nearestFirst.compare(hit, heap.peek()) < 0) {
+                            heap.poll();
+                            heap.add(hit);
+                        } else {
+                            continue;
+                        }
+                        if(heap.size() == keep) {
+                            //nới 0.1% để không loại nhầm điểm mà haversine xếp gần hơn
+                            double worst = heap.peek().distanceKm() / KM_PER_DEGREE;
+                            worstSquared = worst * worst * 1.002;
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Hit> hits = new ArrayList<>(heap);
+        hits.sort(nearestFirst);
+        int from = (int) Math.min(Math.max(offset, 0), hits.size());
+        return new Result(hits.subList(from, hits.size()), total);
+    }
+
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private void putLocked(Long id, double latitude, double longitude) {
+        long cell = cellKey(latitude, longitude);
+        cellOf.put(id, cell);
+        cells.put(cell, cells.getOrDefault(cell, EMPTY).with(id, latitude, longitude));
+    }
+
+    private void removeLocked(Long id) {
+        Long cell = cellOf.remove(id);
+        if(cell == null) {
+            return;
+        }
+        Cell remaining = cells.get(cell).without(id);
+        if(remaining.ids().length == 0) {
+            cells.remove(cell);
+        } else {
+            cells.put(cell, remaining);
+        }
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        return (long) latIndex(latitude) * lonCells + lonIndex(longitude);
+    }
+
+    private int latIndex(double latitude) {
+        return Math.min(Math.max((int) Math.floor((latitude + 90) / cellDegrees), 0), latCells - 1);
+    }
+
+    private int lonIndex(double longitude) {
+        return Math.min(Math.max((int) Math.floor((longitude + 180) / cellDegrees), 0), lonCells - 1);
+    }
+}
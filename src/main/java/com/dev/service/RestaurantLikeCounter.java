@@ -0,0 +1,87 @@
+package com.dev.service;
+
+import com.dev.cache.RestaurantLikesFlushedEvent;
+import com.dev.repository.RestaurantRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Gom các lượt like/unlike trong bộ nhớ rồi flush định kỳ xuống Restaurant.likes.
+ * LongAdder tự chia stripe nên nhiều request like cùng 1 nhà hàng không tranh nhau 1 biến.
+ * Flush dùng UPDATE likes = likes + delta nên nhiều node flush song song vẫn đúng, không cần lock.
+ */
+@Slf4j
+@Service
+public class RestaurantLikeCounter {
+
+    private final RestaurantRepository restaurantRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    //restaurantId -> delta chưa flush
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public RestaurantLikeCounter(
+            RestaurantRepository restaurantRepository,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher
+    ) {
+        this.restaurantRepository = restaurantRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void increment(Long restaurantId) {
+        pending.computeIfAbsent(restaurantId, k -> new LongAdder()).increment();
+    }
+
+    public void decrement(Long restaurantId) {
+        pending.computeIfAbsent(restaurantId, k -> new LongAdder()).decrement();
+    }
+
+    //likes hiển thị = giá trị trong DB + phần chưa flush
+    public long currentLikes(Long restaurantId, Long persisted) {
+        LongAdder adder = pending.get(restaurantId);
+        long base = persisted == null ? 0 : persisted;
+        return adder == null ? base : base + adder.sum();
+    }
+
+    @Scheduled(fixedDelayString = "${restaurant.likes.flush-ms:5000}")
+    @PreDestroy
+    public void flush() {
+        Map<Long, Long> deltas = new HashMap<>();
+        pending.forEach((restaurantId, adder) -> {
+            long delta = adder.sum();
+            if (delta != 0) {
+                //trừ đúng phần đã lấy, không reset, để lượt like đến giữa chừng không bị mất
+                adder.add(-delta);
+                deltas.put(restaurantId, delta);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    deltas.forEach(restaurantRepository::addLikes));
+        } catch (RuntimeException e) {
+            //trả delta lại để lần flush sau thử tiếp
+            deltas.forEach((restaurantId, delta) ->
+                    pending.computeIfAbsent(restaurantId, k -> new LongAdder()).add(delta));
+            log.warn("Flush restaurant likes failed, will retry: {}", e.getMessage());
+            return;
+        }
+        //trang danh sách nhà hàng đang cache giữ số likes trước khi flush
+        eventPublisher.publishEvent(new RestaurantLikesFlushedEvent(deltas.keySet()));
+    }
+}
@@ -0,0 +1,192 @@
+package com.dev.service;
+
+import com.dev.cache.MenuChangedEvent;
+import com.dev.cache.RestaurantChangedEvent;
+import com.dev.repository.CategoryFoodRepository;
+import com.dev.repository.FoodRepository;
+import com.dev.repository.RestaurantRepository;
+import com.dev.utils.TextNormalizer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Inverted index cho search nhà hàng theo name, cuisineType, tên category và tên món.
+ * Mỗi token được index theo các tiền tố (edge n-gram) nên gõ "pho" hay "ph" đều khớp "Phở".
+ * Điểm = tổng trọng số field của từng token trong query, khớp trọn token được điểm cao hơn khớp tiền tố.
+ */
+@Slf4j
+@Service
+public class RestaurantSearchIndex {
+
+    private static final int MAX_GRAM = 12;
+    private static final float NAME_WEIGHT = 3f;
+    private static final float CUISINE_WEIGHT = 2f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float FOOD_WEIGHT = 1f;
+
+    private final RestaurantRepository restaurantRepository;
+    private final FoodRepository foodRepository;
+    private final CategoryFoodRepository categoryFoodRepository;
+
+    //gram -> (restaurantId -> weight)
+    private final Map<String, Map<Long, Float>> postings = new HashMap<>();
+    //restaurantId -> các gram đã index, để xóa khi reindex
+    private final Map<Long, Map<String, Float>> documents = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public RestaurantSearchIndex(
+            RestaurantRepository restaurantRepository,
+            FoodRepository foodRepository,
+            CategoryFoodRepository categoryFoodRepository
+    ) {
+        this.restaurantRepository = restaurantRepository;
+        this.foodRepository = foodRepository;
+        this.categoryFoodRepository = categoryFoodRepository;
+    }
+
+    public record Hit(Long restaurantId, float score) {
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Long, List<String>> foods = groupByRestaurant(foodRepository.findSearchableNames());
+        Map<Long, List<String>> categories = groupByRestaurant(categoryFoodRepository.findSearchableNames());
+        List<Object[]> restaurants = restaurantRepository.findSearchableRows();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            for (Object[] row : restaurants) {
+                Long id = (Long) row[0];
+                put(id, (String) row[1], (String) row[2],
+                        categories.getOrDefault(id, List.of()), foods.getOrDefault(id, List.of()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Search index built for {} restaurants, {} grams", restaurants.size(), postings.size());
+    }
+
+    //trả về toàn bộ kết quả đã xếp hạng, service tự cắt trang
+    public List<Hit> search(String query) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Float> scores = null;
+        lock.readLock().lock();
+        try {
+            for (String token : tokens) {
+                Map<Long, Float> posting = postings.get(gram(token));
+                if (posting == null) {
+                    return List.of();
+                }
+                if (scores == null) {
+                    scores = new HashMap<>(posting);
+                    continue;
+                }
+                //mọi token trong query đều phải khớp
+                Map<Long, Float> next = new HashMap<>();
+                for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+                    Float weight = posting.get(entry.getKey());
+                    if (weight != null) {
+                        next.put(entry.getKey(), entry.getValue() + weight);
+                    }
+                }
+                scores = next;
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Hit> hits = new ArrayList<>(scores.size());
+        scores.forEach((id, score) -> hits.add(new Hit(id, score)));
+        hits.sort(Comparator.comparing(Hit::score).reversed().thenComparing(Hit::restaurantId));
+        return hits;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRestaurantChanged(RestaurantChangedEvent event) {
+        reindex(event.restaurantId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMenuChanged(MenuChangedEvent event) {
+        reindex(event.restaurantId());
+    }
+
+    public void reindex(Long restaurantId) {
+        List<Object[]> rows = restaurantRepository.findSearchableRowById(restaurantId);
+        List<String> categories = groupByRestaurant(categoryFoodRepository.findSearchableNamesByRestaurantId(restaurantId))
+                .getOrDefault(restaurantId, List.of());
+        List<String> foods = groupByRestaurant(foodRepository.findSearchableNamesByRestaurantId(restaurantId))
+                .getOrDefault(restaurantId, List.of());
+        lock.writeLock().lock();
+        try {
+            remove(restaurantId);
+            //nhà hàng bị disable hoặc chưa tạo xong thì chỉ cần xóa khỏi index
+            if (!rows.isEmpty()) {
+                Object[] row = rows.get(0);
+                put(restaurantId, (String) row[1], (String) row[2], categories, foods);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Long id, String name, String cuisineType, List<String> categories, List<String> foods) {
+        Map<String, Float> grams = new HashMap<>();
+        addField(grams, name, NAME_WEIGHT);
+        addField(grams, cuisineType, CUISINE_WEIGHT);
+        categories.forEach(category -> addField(grams, category, CATEGORY_WEIGHT));
+        foods.forEach(food -> addField(grams, food, FOOD_WEIGHT));
+        documents.put(id, grams);
+        grams.forEach((gram, weight) -> postings.computeIfAbsent(gram, k -> new HashMap<>()).put(id, weight));
+    }
+
+    private void remove(Long id) {
+        Map<String, Float> grams = documents.remove(id);
+        if (grams == null) {
+            return;
+        }
+        for (String gram : grams.keySet()) {
+            Map<Long, Float> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static void addField(Map<String, Float> grams, String text, float weight) {
+        for (String token : TextNormalizer.tokenize(text)) {
+            int max = Math.min(token.length(), MAX_GRAM);
+            for (int len = 1; len <= max; len++) {
+                //tiền tố càng ngắn so với token thì điểm càng thấp
+                float score = weight * (0.5f + 0.5f * len / token.length());
+                grams.merge(token.substring(0, len), score, Math::max);
+            }
+        }
+    }
+
+    private static String gram(String token) {
+        return token.length() > MAX_GRAM ? token.substring(0, MAX_GRAM) : token;
+    }
+
+    private static Map<Long, List<String>> groupByRestaurant(List<Object[]> rows) {
+        Map<Long, List<String>> grouped = new HashMap<>();
+        for (Object[] row : rows) {
+            grouped.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((String) row[1]);
+        }
+        return grouped;
+    }
+}
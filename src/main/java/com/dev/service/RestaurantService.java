@@ -1,27 +1,35 @@
 package com.dev.service;
 
 import com.cloudinary.utils.ObjectUtils;
+import com.dev.cache.IdentityCache;
+import com.dev.cache.RestaurantChangedEvent;
+import com.dev.cache.RestaurantListingCache;
 import com.dev.config.CloudinaryConfig;
 import com.dev.dto.request.CreateRestaurantRequest;
 import com.dev.dto.request.UpdateRestaurantRequest;
 import com.dev.dto.response.PaginationResponse;
 import com.dev.dto.response.RestaurantResponse;
+import com.dev.dto.response.SuggestResponse;
 import com.dev.enums.ErrorEnum;
 import com.dev.exception.AppException;
 import com.dev.mapper.RestaurantMapper;
 import com.dev.models.*;
 import com.dev.repository.AddressRepository;
+import com.dev.repository.RestaurantLikeRepository;
 import com.dev.repository.RestaurantRepository;
 import com.dev.repository.UserRepository;
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -40,17 +48,45 @@ public class RestaurantService {
     AddressRepository addressRepository;
     CloudinaryConfig cloudinary;
     UserRepository userRepository;
+    IdentityCache identityCache;
+    RestaurantListingCache restaurantListingCache;
     RestaurantMapper restaurantMapper;
+    RestaurantSearchIndex restaurantSearchIndex;
+    RestaurantGeoIndex restaurantGeoIndex;
+    SearchSuggestIndex searchSuggestIndex;
+    RestaurantLikeRepository restaurantLikeRepository;
+    RestaurantLikeCounter restaurantLikeCounter;
+    ApplicationEventPublisher eventPublisher;
+    ImageUploader imageUploader;
+    TransactionTemplate transactionTemplate;
     private static final ExecutorService executorService = Executors.newFixedThreadPool(10);
 
 
 
-    @Transactional
     @PreAuthorize("hasRole('RESTAURANT')")
     public RestaurantResponse create(
             CreateRestaurantRequest request,
             List<MultipartFile> files
     ) throws IOException {
+        //user gửi lên
+        var email = SecurityContextHolder.getContext().getAuthentication().getName();
+        //kiểm tra trước khi upload để request sai không tốn lượt upload
+        Long ownerId = transactionTemplate.execute(status -> prepareRestaurant(email, request).getOwner().getId());
+
+        //upload song song ngoài transaction, không giữ connection DB trong lúc truyền file
+        List<String> urls = imageUploader.uploadAll(files, "restaurant_" + ownerId);
+        try {
+            return transactionTemplate.execute(status -> saveRestaurant(prepareRestaurant(email, request), request, new HashSet<>(urls)));
+        } catch (RuntimeException e) {
+            imageUploader.deleteAsync(urls);
+            throw e;
+        }
+    }
+
+    private Restaurant prepareRestaurant(String email, CreateRestaurantRequest request) {
+        if((request.latitude() == null) != (request.longitude() == null)) {
+            throw new AppException(ErrorEnum.LOCATION_INVALID);
+        }
         //Kiểm tra địa chỉ đã tồn tại chưa
         if(addressRepository.existsByCityAndDistrictAndWardAndStreetAndNumberStreet(
                 request.city(),
@@ -61,8 +97,6 @@ public class RestaurantService {
         )) {
             throw new AppException(ErrorEnum.RES_ADDRESS_EXIST);
         }
-        //user gửi lên
-        var email = SecurityContextHolder.getContext().getAuthentication().getName();
         var owner = userRepository.findByEmail(email).orElse(null);
         if(owner == null) {
             throw new AppException(ErrorEnum.NOT_FOUND_OWNER);
@@ -77,12 +111,11 @@ public class RestaurantService {
                 throw new AppException(ErrorEnum.USER_CREATED_RES);
             }
         }
+        return restaurantOwner;
+    }
 
-
-        Set<String> urlList = uploadImg(files, String.valueOf(owner.getId()));
-
-
-
+    private RestaurantResponse saveRestaurant(Restaurant restaurantOwner, CreateRestaurantRequest request, Set<String> urlList) {
+        User owner = restaurantOwner.getOwner();
         ContactInfo contactInfo = ContactInfo.builder()
                 .primary_email(request.primary_email())
                 .mobile(request.mobile())
@@ -96,6 +129,8 @@ public class RestaurantService {
                 .ward(request.ward())
                 .district(request.district())
                 .postalCode(request.postalCode())
+                .latitude(request.latitude())
+                .longitude(request.longitude())
                 .build();
         restaurantOwner.setName(request.name());
         restaurantOwner.setContactInfo(contactInfo);
@@ -110,63 +145,55 @@ public class RestaurantService {
         restaurantOwner.setDisable(false);
 
         restaurantRepository.save(restaurantOwner);
+        eventPublisher.publishEvent(new RestaurantChangedEvent(restaurantOwner.getId(), owner.getEmail()));
         RestaurantResponse restaurantResponse = restaurantMapper.toRestaurantResponse(restaurantOwner);
         restaurantResponse.setOwner(owner.getFullName());
         return restaurantResponse;
     }
 
 
-    @Transactional
     @PreAuthorize("hasRole('RESTAURANT')")
     public RestaurantResponse update(
             UpdateRestaurantRequest request,
             Optional<List<MultipartFile>> files,
             Long id
     ) throws IOException {
+        List<String> uploaded = List.of();
+        if(files.isPresent() && !files.get().isEmpty()) {
+            if(!restaurantRepository.existsById(id)) {
+                throw new AppException(ErrorEnum.RES_NOT_FOUND);
+            }
+            //upload song song ngoài transaction
+            uploaded = imageUploader.uploadAll(files.get(), "restaurant_" + id);
+        }
+        List<String> newImages = uploaded;
+        Set<String> oldImages = new HashSet<>();
+        RestaurantResponse restaurantResponse;
+        try {
+            restaurantResponse = transactionTemplate.execute(status -> updateRestaurant(request, id, newImages, oldImages));
+        } catch (RuntimeException e) {
+            imageUploader.deleteAsync(newImages);
+            throw e;
+        }
+        //ảnh cũ chỉ xóa sau khi commit, update lỗi thì nhà hàng vẫn giữ ảnh cũ
+        imageUploader.deleteAsync(oldImages);
+        return restaurantResponse;
+    }
+
+    private RestaurantResponse updateRestaurant(UpdateRestaurantRequest request, Long id, List<String> newImages, Set<String> oldImages) {
+        if(request.latitude().isPresent() != request.longitude().isPresent()) {
+            throw new AppException(ErrorEnum.LOCATION_INVALID);
+        }
         Restaurant restaurant = restaurantRepository.findById(id).orElse(null);
-        List<User> users = userRepository.fetchUsersByFavorites(restaurant.getId());
         if(restaurant == null) {
             throw new AppException(ErrorEnum.RES_NOT_FOUND);
         }
 
-
-
-        Set<String> imgCloudChange;
-        if(files.isPresent() && !files.get().isEmpty()) {
-            for (String img :  restaurant.getImages()) {
-                //log.info("IMG: " + img);
-                String[] imgArr = img.split("/");
-                String publicId = "restaurant_" + restaurant.getOwner().getId() + "/" + imgArr[imgArr.length - 1].split("\\.")[0];
-                //log.info("PUBLIC ID: "+publicId);
-                cloudinary.cloudinary().uploader().destroy(publicId,ObjectUtils.emptyMap());
-            }
-
-            //Thêm mới
-            Set<String> linkImgs = uploadImg(files.get(), String.valueOf(restaurant.getId()));
-            imgCloudChange = linkImgs;
-            restaurant.setImages(linkImgs);
-
-
-
-        } else {
-            imgCloudChange = null;
+        if(!newImages.isEmpty()) {
+            oldImages.addAll(restaurant.getImages());
+            restaurant.setImages(new HashSet<>(newImages));
         }
 
-        //nếu thay đổi những trường trong RestaurantDto
-        users.forEach(user -> {
-
-
-            user.removeFavorite(restaurant.getId());
-
-            RestaurantDto restaurantDto = new RestaurantDto();
-            restaurantDto.setId(restaurant.getId());
-            restaurantDto.setTitle(request.name().isPresent() ? request.name().get() : restaurant.getName());
-            restaurantDto.setDescription(request.description().isPresent() ? request.description().get() : restaurant.getDescription());
-            restaurantDto.setImagesLiked(imgCloudChange != null ? imgCloudChange : restaurant.getImages());
-            user.getFavorites().add(restaurantDto);
-            userRepository.save(user);
-        });
-
         //cập nhật
         if(request.name().isPresent()) {
             restaurant.setName(request.name().get());
@@ -207,10 +234,15 @@ public class RestaurantService {
         if(request.postalCode().isPresent()) {
             address.setPostalCode(request.postalCode().get());
         }
+        if(request.latitude().isPresent()) {
+            address.setLatitude(request.latitude().get());
+            address.setLongitude(request.longitude().get());
+        }
         addressRepository.save(address);
         restaurant.setAddress(address);
 
         Restaurant updateRes = restaurantRepository.save(restaurant);
+        eventPublisher.publishEvent(new RestaurantChangedEvent(updateRes.getId()));
         RestaurantResponse restaurantResponse = restaurantMapper.toRestaurantResponse(updateRes);
         restaurantResponse.setOwner(restaurant.getOwner().getFullName());
         return restaurantResponse;
@@ -225,8 +257,10 @@ public class RestaurantService {
             throw new AppException(ErrorEnum.RES_NOT_FOUND);
         }
         restaurant.setDisable(!restaurant.isDisable());
+        eventPublisher.publishEvent(new RestaurantChangedEvent(restaurant.getId()));
     }
 
+    @Transactional(readOnly = true)
     @PreAuthorize("hasRole('RESTAURANT')")
     public RestaurantResponse getRestaurantByOwner() {
         var emailOwner = SecurityContextHolder.getContext().getAuthentication().getName();
@@ -247,46 +281,58 @@ public class RestaurantService {
 
     }
 
+    @Transactional(readOnly = true)
     public PaginationResponse getAllRestaurants(int page,int size) {
-        var email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email).orElse(null);
-        Optional<Set<RestaurantDto>> favoritesResUser;
-        if(user != null) {
-            favoritesResUser = Optional.ofNullable(user.getFavorites());
-        } else {
-            favoritesResUser = null;
-        }
-
-        var restaurantList = restaurantRepository.fetchByRestaurantCreated(PageRequest.of(page - 1,size));
-        List<RestaurantResponse> restaurantResponses = restaurantList.getContent().stream().map(restaurant -> {
-            var restaurantRes = restaurantMapper.toRestaurantResponse(restaurant);
-            restaurantRes.setIsLikeUser(false);
-            if(favoritesResUser !=null && favoritesResUser.isPresent()) {
-                if (favoritesResUser.get().stream().anyMatch(restaurantDto -> restaurantDto.getId().equals(restaurant.getId()))) {
-                    restaurantRes.setIsLikeUser(true);
-                }
-            }
-
-
-
-            restaurantRes.setOwner(restaurant.getOwner().getFullName());
-            restaurantRes.setId(restaurant.getId());
+        var pageSize = Math.min(Math.max(size, 1), 50);
+        var currentPage = Math.max(page, 1);
+        //api public: chưa đăng nhập thì không có like
+        Long userId = identityCache.findCurrent().map(IdentityCache.Identity::userId).orElse(null);
+
+        //trang dùng chung cho mọi user, chỉ like của user là query riêng
+        RestaurantListingCache.Page listing = restaurantListingCache.page(currentPage, pageSize);
+        //chỉ lấy các id được like trong trang hiện tại
+        Set<Long> likedIds = Set.of();
+        if(userId != null && !listing.rows().isEmpty()) {
+            likedIds = restaurantLikeRepository.findLikedRestaurantIds(
+                    userId, listing.rows().stream().map(RestaurantListingCache.Row::id).toList());
+        }
+        Set<Long> finalLikedIds = likedIds;
+        List<RestaurantResponse> restaurantResponses = listing.rows().stream().map(row -> {
+            var restaurantRes = toRestaurantResponse(row);
+            restaurantRes.setIsLikeUser(finalLikedIds.contains(row.id()));
             return restaurantRes;
         }).toList();
         return PaginationResponse.builder()
                 .content(restaurantResponses)
-                .currentPage(page)
-                .totalElements(restaurantList.getTotalElements())
-                .totalPages(restaurantList.getTotalPages())
+                .currentPage(currentPage)
+                .totalElements(listing.totalElements())
+                .totalPages(listing.totalPages())
                 .build();
 
     }
     public Integer getTotalPages(int page,int size) {
-        var restaurantList = restaurantRepository.fetchByRestaurantCreated(PageRequest.of(page - 1,size));
-        return restaurantList.getTotalPages();
+        return restaurantListingCache.totalPages(Math.min(Math.max(size, 1), 50));
+    }
+
+    private RestaurantResponse toRestaurantResponse(RestaurantListingCache.Row row) {
+        RestaurantResponse restaurantRes = new RestaurantResponse();
+        restaurantRes.setId(row.id());
+        restaurantRes.setName(row.name());
+        restaurantRes.setDescription(row.description());
+        restaurantRes.setCuisineType(row.cuisineType());
+        restaurantRes.setAddress(row.address());
+        restaurantRes.setOwner(row.owner());
+        restaurantRes.setContactInfo(row.contactInfo());
+        restaurantRes.setOpenHours(row.openHours());
+        restaurantRes.setImages(row.images());
+        restaurantRes.setCreatedAt(row.createdAt());
+        restaurantRes.setOpen(row.open());
+        restaurantRes.setLikes(restaurantLikeCounter.currentLikes(row.id(), row.likes()));
+        return restaurantRes;
     }
 
 
+    @Transactional(readOnly = true)
     @PreAuthorize("hasRole('USER')")
     public RestaurantResponse getRestaurantById(Long id) {
         var restaurant = restaurantRepository.findById(id).orElse(null);
@@ -297,7 +343,9 @@ public class RestaurantService {
         if(restaurant.isDisable()) {
             throw new AppException(ErrorEnum.RES_DISABLE);
         }
-        return restaurantMapper.toRestaurantResponse(restaurant);
+        var restaurantRes = restaurantMapper.toRestaurantResponse(restaurant);
+        restaurantRes.setLikes(restaurantLikeCounter.currentLikes(restaurant.getId(), restaurant.getLikes()));
+        return restaurantRes;
     }
 
 
@@ -310,6 +358,7 @@ public class RestaurantService {
         }
         restaurant.setOpen(!restaurant.isOpen());
         restaurantRepository.save(restaurant);
+        eventPublisher.publishEvent(new RestaurantChangedEvent(restaurant.getId()));
         var restaurantRes = restaurantMapper.toRestaurantResponse(restaurant);
         restaurantRes.setOwner(restaurant.getOwner().getFullName());
         return restaurantRes;
@@ -317,27 +366,90 @@ public class RestaurantService {
 
 
     @PreAuthorize("hasRole('USER')")
-    public List<RestaurantResponse> getRestaurantsBySearch(String search) {
-        List<Restaurant> restaurants = restaurantRepository.searchRestaurantsByKeyword(search);
+    public SuggestResponse getSuggestions(String prefix, int limit) {
+        return searchSuggestIndex.suggest(prefix, Math.min(Math.max(limit, 1), 20));
+    }
 
-        List<RestaurantResponse> restaurantResponses = restaurants.stream().map(restaurant -> {
-            var restaurantRes = restaurantMapper.toRestaurantResponse(restaurant);
-            restaurantRes.setOwner(restaurant.getOwner().getFullName());
-            restaurantRes.setId(restaurant.getId());
-            return restaurantRes;
-        }).toList();
-        return restaurantResponses;
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasRole('USER')")
+    public PaginationResponse getRestaurantsBySearch(String search, int page, int size) {
+        var pageSize = Math.min(Math.max(size, 1), 50);
+        var currentPage = Math.max(page, 1);
+        List<RestaurantSearchIndex.Hit> hits = restaurantSearchIndex.search(search);
+
+        int from = Math.min((currentPage - 1) * pageSize, hits.size());
+        int to = Math.min(from + pageSize, hits.size());
+        List<Long> ids = hits.subList(from, to).stream().map(RestaurantSearchIndex.Hit::restaurantId).toList();
+
+        Map<Long, Restaurant> restaurants = new HashMap<>();
+        if(!ids.isEmpty()) {
+            restaurantRepository.findAllForListingByIdIn(ids).forEach(restaurant -> restaurants.put(restaurant.getId(), restaurant));
+        }
+        //giữ thứ tự theo điểm của index
+        List<RestaurantResponse> restaurantResponses = ids.stream()
+                .map(restaurants::get)
+                .filter(Objects::nonNull)
+                .map(restaurant -> {
+                    var restaurantRes = restaurantMapper.toRestaurantResponse(restaurant);
+                    restaurantRes.setOwner(restaurant.getOwner().getFullName());
+                    restaurantRes.setId(restaurant.getId());
+                    return restaurantRes;
+                }).toList();
+        return PaginationResponse.builder()
+                .content(restaurantResponses)
+                .currentPage(currentPage)
+                .totalElements(hits.size())
+                .totalPages((hits.size() + pageSize - 1) / pageSize)
+                .build();
     }
 
+    //nhà hàng đang mở trong bán kính radiusKm quanh địa chỉ mặc định của user, gần nhất trước
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasRole('USER')")
+    public PaginationResponse getNearbyRestaurants(double radiusKm, int page, int size) {
+        var pageSize = Math.min(Math.max(size, 1), 50);
+        //index chỉ xếp hạng maxResults điểm gần nhất, trang sau đó luôn rỗng
+        var maxPage = (restaurantGeoIndex.maxResults() + pageSize - 1) / pageSize;
+        var currentPage = Math.min(Math.max(page, 1), maxPage);
+        Long userId = identityCache.current().userId();
+        Address address = addressRepository.findFirstByCustomerIdAndCustomerDefaultTrue(userId)
+                .orElseThrow(() -> new AppException(ErrorEnum.ADDRESS_DEFAULT_NOT_FOUND));
+        if(address.getLatitude() == null || address.getLongitude() == null) {
+            throw new AppException(ErrorEnum.ADDRESS_LOCATION_MISSING);
+        }
+        RestaurantGeoIndex.Result result = restaurantGeoIndex.nearby(
+                address.getLatitude(), address.getLongitude(), radiusKm, (long) (currentPage - 1) * pageSize, pageSize);
 
-    @Transactional
+        List<Long> ids = result.hits().stream().map(RestaurantGeoIndex.Hit::restaurantId).toList();
+        Map<Long, Restaurant> restaurants = new HashMap<>();
+        if(!ids.isEmpty()) {
+            restaurantRepository.findAllForListingByIdIn(ids).forEach(restaurant -> restaurants.put(restaurant.getId(), restaurant));
+        }
+        //giữ thứ tự theo khoảng cách của index
+        List<RestaurantResponse> restaurantResponses = result.hits().stream()
+                .filter(hit -> restaurants.containsKey(hit.restaurantId()))
+                .map(hit -> {
+                    Restaurant restaurant = restaurants.get(hit.restaurantId());
+                    var restaurantRes = restaurantMapper.toRestaurantResponse(restaurant);
+                    restaurantRes.setOwner(restaurant.getOwner().getFullName());
+                    restaurantRes.setId(restaurant.getId());
+                    restaurantRes.setLikes(restaurantLikeCounter.currentLikes(restaurant.getId(), restaurant.getLikes()));
+                    restaurantRes.setDistanceKm(Math.round(hit.distanceKm() * 100) / 100.0);
+                    return restaurantRes;
+                }).toList();
+        return PaginationResponse.builder()
+                .content(restaurantResponses)
+                .currentPage(currentPage)
+                .totalElements(result.totalElements())
+                .totalPages(Math.min((result.totalElements() + pageSize - 1) / pageSize, maxPage))
+                .build();
+    }
+
+
+    //không bọc transaction: delete/insert mỗi lệnh tự commit, insert trùng do bấm 2 lần sẽ bị unique key chặn
     @PreAuthorize("hasRole('USER')")
     public boolean addToFavorites(Long restaurantId) {
-        var emailUser = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(emailUser).orElse(null);
-        if(user == null) {
-            throw new AppException(ErrorEnum.NOT_FOUND_USER);
-        }
+        Long userId = identityCache.current().userId();
         Restaurant restaurant = restaurantRepository.findById(restaurantId).orElse(null);
         if(restaurant == null) {
             throw new AppException(ErrorEnum.RES_NOT_FOUND);
@@ -345,56 +457,41 @@ public class RestaurantService {
         if(restaurant.isDisable()) {
             throw new AppException(ErrorEnum.RES_DISABLE);
         }
-        RestaurantDto restaurantDto = RestaurantDto.builder()
-                .title(restaurant.getName())
-                .description(restaurant.getDescription())
-                .imagesLiked(restaurant.getImages())
-                .id(restaurant.getId())
-                .build();
-        boolean isFavorited = false;
-        Set<RestaurantDto>  favorites = user.getFavorites();
-        for(RestaurantDto restaurantDto1 : favorites) {
-            if(restaurantDto1.getId().equals(restaurantId)) {
-                isFavorited = true;
-            }
+        //đã like thì xóa được 1 dòng -> unlike
+        if(restaurantLikeRepository.deleteByUserIdAndRestaurantId(userId, restaurantId) > 0) {
+            restaurantLikeCounter.decrement(restaurantId);
+            return true;
         }
-        boolean unlike = false;
-        if(!isFavorited) {
-            restaurant.setLikes(restaurant.getLikes() + 1);
-            favorites.add(restaurantDto);
-        }else {
-            restaurant.setLikes(restaurant.getLikes() - 1);
-            favorites.removeIf(restaurantDto1 -> restaurantDto1.getId().equals(restaurantId));
-            unlike = true;
+        try {
+            restaurantLikeRepository.saveAndFlush(RestaurantLike.builder()
+                    .user(userRepository.getReferenceById(userId))
+                    .restaurant(restaurant)
+                    .createdAt(new Date())
+                    .build());
+            restaurantLikeCounter.increment(restaurantId);
+        } catch (DataIntegrityViolationException e) {
+            //request song song đã like trước, coi như đã like
+            log.debug("Restaurant {} already liked by user {}", restaurantId, userId);
         }
-        restaurantRepository.save(restaurant);
-        userRepository.save(user);
-        return unlike;
+        return false;
     }
 
+    @Transactional(readOnly = true)
     @PreAuthorize("hasRole('USER')")
     public Set<RestaurantDto> getAllFavorites() {
-        var email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email).orElse(null);
-        if(user == null) {
-            throw new AppException(ErrorEnum.NOT_FOUND_USER);
-        }
+        Long userId = identityCache.current().userId();
 
-        return user.getFavorites();
+        Set<RestaurantDto> favorites = new HashSet<>();
+        restaurantRepository.findLikedByUserId(userId).forEach(restaurant -> favorites.add(RestaurantDto.builder()
+                .title(restaurant.getName())
+                .description(restaurant.getDescription())
+                .imagesLiked(restaurant.getImages())
+                .id(restaurant.getId())
+                .build()));
+        return favorites;
     }
 
 
-    private Set<String> uploadImg(List<MultipartFile> files,String unique) throws IOException {
-        Set<String> urlList = new HashSet<>();
-        for (MultipartFile file : files) {
-            var result = cloudinary.cloudinary().uploader()
-                    .upload(file.getBytes(), ObjectUtils.asMap(
-                            "folder", "restaurant_"+unique
-                    ));
-            urlList.add((String) result.get("secure_url"));;
-        }
-        return urlList;
-    }
     private List<Map> listFilesInFolderCloud(String folder) throws Exception {
         Map<String,Object> options = ObjectUtils.asMap(
                 "type","upload",
@@ -0,0 +1,60 @@
+package com.dev.service;
+
+import com.dev.repository.SchedulerLockRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+//lock theo lease trong DB để khi chạy nhiều instance chỉ 1 node chạy job tại 1 thời điểm
+@Slf4j
+@Service
+public class SchedulerLockService {
+
+    private final SchedulerLockRepository schedulerLockRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate insertTemplate;
+    private final String owner;
+
+    public SchedulerLockService(SchedulerLockRepository schedulerLockRepository, PlatformTransactionManager transactionManager) {
+        this.schedulerLockRepository = schedulerLockRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        //insert trùng key đánh dấu rollback-only cả transaction chứa nó, nên insert chạy trong transaction riêng
+        this.insertTemplate = new TransactionTemplate(transactionManager);
+        this.insertTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.owner = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    public boolean tryLock(String name, Duration lease) {
+        Instant now = Instant.now();
+        if(!schedulerLockRepository.existsById(name)) {
+            try {
+                insertTemplate.executeWithoutResult(status -> schedulerLockRepository.insert(name, now.plus(lease), owner));
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                //node khác vừa tạo dòng này, lấy lease bằng UPDATE có điều kiện như bình thường
+            }
+        }
+        Integer acquired = transactionTemplate.execute(status -> schedulerLockRepository.acquire(name, now, now.plus(lease), owner));
+        return acquired != null && acquired == 1;
+    }
+
+    public void unlock(String name) {
+        transactionTemplate.executeWithoutResult(status -> schedulerLockRepository.release(name, Instant.now(), owner));
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.dev.service;
+
+import com.dev.cache.MenuChangedEvent;
+import com.dev.cache.RestaurantChangedEvent;
+import com.dev.dto.response.SuggestResponse;
+import com.dev.repository.FoodRepository;
+import com.dev.repository.OrderItemRepository;
+import com.dev.repository.OrderRepository;
+import com.dev.repository.RestaurantRepository;
+import com.dev.utils.TextNormalizer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Autocomplete cho ô search: mảng key đã sort (tên đã bỏ dấu, mỗi vị trí đầu từ là 1 key)
+ * nên tìm prefix = 2 lần binary search, không chạm DB.
+ * Snapshot là immutable và được thay nguyên cục khi rebuild, đọc không cần lock.
+ * Popularity: nhà hàng = likes + số đơn, món = tổng số lượng đã đặt.
+ * Số đơn/số lượng phải quét bảng order, order_item nên chỉ đọc lại mỗi popularity-refresh-ms;
+ * thay đổi tên/món (dirty) chỉ đọc lại tên và dùng popularity đang giữ.
+ */
+@Slf4j
+@Service
+public class SearchSuggestIndex {
+
+    private final RestaurantRepository restaurantRepository;
+    private final FoodRepository foodRepository;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+
+    @Value("${search.suggest.popularity-refresh-ms:600000}")
+    private long popularityRefreshMs;
+
+    private volatile Snapshot restaurants = Snapshot.EMPTY;
+    private volatile Snapshot foods = Snapshot.EMPTY;
+    private volatile Map<Long, Long> restaurantOrders = Map.of();
+    private volatile Map<Long, Long> foodQuantities = Map.of();
+    private volatile long popularityAt;
+    private volatile boolean dirty;
+
+    public SearchSuggestIndex(
+            RestaurantRepository restaurantRepository,
+            FoodRepository foodRepository,
+            OrderRepository orderRepository,
+            OrderItemRepository orderItemRepository
+    ) {
+        this.restaurantRepository = restaurantRepository;
+        this.foodRepository = foodRepository;
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        refreshPopularity();
+        rebuild();
+    }
+
+    public void refreshPopularity() {
+        restaurantOrders = toWeights(orderRepository.countByRestaurant());
+        foodQuantities = toWeights(orderItemRepository.sumQuantityByFood());
+        popularityAt = System.currentTimeMillis();
+    }
+
+    public void rebuild() {
+        //xóa cờ trước khi đọc DB để thay đổi xảy ra trong lúc build vẫn được build lại lần sau
+        dirty = false;
+        Map<Long, Long> orders = restaurantOrders;
+        Map<Long, Long> quantities = foodQuantities;
+        List<Entry> restaurantEntries = new ArrayList<>();
+        for (Object[] row : restaurantRepository.findSuggestRows()) {
+            long likes = row[2] == null ? 0 : (Long) row[2];
+            Long id = (Long) row[0];
+            restaurantEntries.add(new Entry(id, (String) row[1], null, likes + orders.getOrDefault(id, 0L)));
+        }
+        List<Entry> foodEntries = new ArrayList<>();
+        for (Object[] row : foodRepository.findSuggestRows()) {
+            Long id = (Long) row[0];
+            foodEntries.add(new Entry(id, (String) row[1], (Long) row[2], quantities.getOrDefault(id, 0L)));
+        }
+        restaurants = Snapshot.of(restaurantEntries);
+        foods = Snapshot.of(foodEntries);
+        log.info("Suggest index built: {} restaurants, {} foods", restaurantEntries.size(), foodEntries.size());
+    }
+
+    public SuggestResponse suggest(String prefix, int limit) {
+        String key = String.join(" ", TextNormalizer.tokenize(prefix));
+        if (key.isEmpty()) {
+            return new SuggestResponse(List.of(), List.of());
+        }
+        return new SuggestResponse(restaurants.top(key, limit), foods.top(key, limit));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRestaurantChanged(RestaurantChangedEvent event) {
+        dirty = true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMenuChanged(MenuChangedEvent event) {
+        dirty = true;
+    }
+
+    //gom nhiều thay đổi vào 1 lần rebuild thay vì rebuild theo từng event
+    @Scheduled(fixedDelayString = "${search.suggest.refresh-ms:30000}")
+    public void refresh() {
+        if (System.currentTimeMillis() - popularityAt >= popularityRefreshMs) {
+            refreshPopularity();
+            rebuild();
+        } else if (dirty) {
+            rebuild();
+        }
+    }
+
+    private static Map<Long, Long> toWeights(List<Object[]> rows) {
+        Map<Long, Long> weights = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            if (row[0] != null && row[1] != null) {
+                weights.put((Long) row[0], ((Number) row[1]).longValue());
+            }
+        }
+        return weights;
+    }
+
+    private record Entry(Long id, String name, Long restaurantId, long weight) {
+    }
+
+    private record Snapshot(String[] keys, int[] owners, Entry[] entries) {
+
+        static final Snapshot EMPTY = new Snapshot(new String[0], new int[0], new Entry[0]);
+
+        static Snapshot of(List<Entry> source) {
+            //entry nặng hơn đứng trước, nên index nhỏ hơn = ưu tiên hơn
+            Entry[] entries = source.toArray(new Entry[0]);
+            Arrays.sort(entries, (a, b) -> Long.compare(b.weight(), a.weight()));
+
+            List<String> keyList = new ArrayList<>();
+            List<Integer> ownerList = new ArrayList<>();
+            for (int i = 0; i < entries.length; i++) {
+                List<String> tokens = TextNormalizer.tokenize(entries[i].name());
+                //"Phở Bò Tái" -> "pho bo tai", "bo tai", "tai"
+                for (int start = 0; start < tokens.size(); start++) {
+                    keyList.add(String.join(" ", tokens.subList(start, tokens.size())));
+                    ownerList.add(i);
+                }
+            }
+            Integer[] order = new Integer[keyList.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> keyList.get(a).compareTo(keyList.get(b)));
+
+            String[] keys = new String[order.length];
+            int[] owners = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                keys[i] = keyList.get(order[i]);
+                owners[i] = ownerList.get(order[i]);
+            }
+            return new Snapshot(keys, owners, entries);
+        }
+
+        List<SuggestResponse.Item> top(String prefix, int limit) {
+            int from = lowerBound(prefix);
+            //sau khi fold key chỉ còn [a-z0-9 ] nên prefix + '~' là cận trên của range prefix
+            int to = lowerBound(prefix + '~');
+            //giữ k entry có index nhỏ nhất (= weight lớn nhất), k nhỏ nên mảng + chèn tuyến tính là đủ
+            int[] best = new int[limit];
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                int owner = owners[i];
+                if (count == limit && owner >= best[count - 1]) {
+                    continue;
+                }
+                int pos = count;
+                boolean duplicate = false;
+                while (pos > 0 && best[pos - 1] >= owner) {
+                    if (best[pos - 1] == owner) {
+                        duplicate = true;
+                        break;
+                    }
+                    pos--;
+                }
+                if (duplicate) {
+                    continue;
+                }
+                int end = Math.min(count, limit - 1);
+                System.arraycopy(best, pos, best, pos + 1, end - pos);
+                best[pos] = owner;
+                count = Math.min(count + 1, limit);
+            }
+            List<SuggestResponse.Item> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Entry entry = entries[best[i]];
+                items.add(new SuggestResponse.Item(entry.id(), entry.name(), entry.restaurantId()));
+            }
+            return items;
+        }
+
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.dev.storage;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/*
+ * uploadLarge gửi stream theo từng phần chunk-size byte (Cloudinary yêu cầu tối thiểu 5MB),
+ * ảnh nhỏ hơn chunk-size chỉ tốn 1 request, heap mỗi upload tối đa 1 chunk thay vì cả file.
+ */
+@Component
+@ConditionalOnProperty(name = "image.storage.type", havingValue = "cloudinary", matchIfMissing = true)
+public class CloudinaryImageStorage implements ImageStorage {
+    private static final String UPLOAD_PATH = "/upload/";
+
+    private final Cloudinary cloudinary;
+    private final int chunkSize;
+
+    public CloudinaryImageStorage(
+            Cloudinary cloudinary,
+            @Value("${image.storage.cloudinary.chunk-size:6000000}") int chunkSize
+    ) {
+        this.cloudinary = cloudinary;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public String upload(InputStream content, long size, String folder, String originalFilename) throws IOException {
+        //overload 3 tham số: offset 0 và unique upload id ngẫu nhiên cho mỗi lần upload
+        Map result = cloudinary.uploader().uploadLarge(content, ObjectUtils.asMap(
+                "folder", folder
+        ), chunkSize);
+        return (String) result.get("secure_url");
+    }
+
+    @Override
+    public void delete(String url) throws IOException {
+        String publicId = publicId(url);
+        if(publicId != null) {
+            cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
+        }
+    }
+
+    //https://res.cloudinary.com/<cloud>/image/upload/v123/restaurant_1/abc.jpg -> restaurant_1/abc
+    static String publicId(String url) {
+        int start = url.indexOf(UPLOAD_PATH);
+        if(start < 0) {
+            return null;
+        }
+        String path = url.substring(start + UPLOAD_PATH.length());
+        if(path.matches("v\\d+/.*")) {
+            path = path.substring(path.indexOf('/') + 1);
+        }
+        int dot = path.lastIndexOf('.');
+        return dot > path.lastIndexOf('/') ? path.substring(0, dot) : path;
+    }
+}
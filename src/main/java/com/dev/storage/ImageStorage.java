@@ -0,0 +1,17 @@
+package com.dev.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+ * Nơi lưu ảnh món ăn/nhà hàng. Chọn bằng image.storage.type: cloudinary (mặc định) hoặc local (dev/test, không cần mạng).
+ * Nội dung được đọc dạng stream, implementation không được đọc cả file vào heap.
+ */
+public interface ImageStorage {
+
+    //trả về URL public của ảnh, size = -1 nếu không biết
+    String upload(InputStream content, long size, String folder, String originalFilename) throws IOException;
+
+    //xóa theo URL đã trả về từ upload, URL không thuộc storage này thì bỏ qua
+    void delete(String url) throws IOException;
+}
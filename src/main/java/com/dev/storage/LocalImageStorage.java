@@ -0,0 +1,62 @@
+package com.dev.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+//lưu ảnh trên đĩa cho dev/test/benchmark, URL = base-url/folder/file
+@Component
+@ConditionalOnProperty(name = "image.storage.type", havingValue = "local")
+public class LocalImageStorage implements ImageStorage {
+
+    private final Path root;
+    private final String baseUrl;
+
+    public LocalImageStorage(
+            @Value("${image.storage.local.root:${java.io.tmpdir}/food-delivery-images}") String root,
+            @Value("${image.storage.local.base-url:http://localhost:8080/images}") String baseUrl
+    ) {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    @Override
+    public String upload(InputStream content, long size, String folder, String originalFilename) throws IOException {
+        String filename = UUID.randomUUID() + extension(originalFilename);
+        Path target = resolve(folder + "/" + filename);
+        Files.createDirectories(target.getParent());
+        Files.copy(content, target);
+        return baseUrl + "/" + folder + "/" + filename;
+    }
+
+    @Override
+    public void delete(String url) throws IOException {
+        if(url.startsWith(baseUrl + "/")) {
+            Files.deleteIfExists(resolve(url.substring(baseUrl.length() + 1)));
+        }
+    }
+
+    //không cho folder/URL trỏ ra ngoài root (../)
+    private Path resolve(String relative) {
+        Path path = root.resolve(relative).normalize();
+        if(!path.startsWith(root)) {
+            throw new IllegalArgumentException("Invalid image path: " + relative);
+        }
+        return path;
+    }
+
+    private static String extension(String originalFilename) {
+        if(originalFilename == null) {
+            return "";
+        }
+        int dot = originalFilename.lastIndexOf('.');
+        String extension = dot < 0 ? "" : originalFilename.substring(dot).toLowerCase();
+        return extension.matches("\\.[a-z0-9]{1,5}") ? extension : "";
+    }
+}
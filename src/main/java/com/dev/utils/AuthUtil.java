@@ -15,11 +15,18 @@ import java.text.ParseException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class AuthUtil {
 
+    //MACSigner/MACVerifier thread-safe: tạo 1 lần cho mỗi secret rồi dùng lại (access/refresh chỉ có 2 secret)
+    private final Map<String, MACSigner> signers = new ConcurrentHashMap<>();
+    private final Map<String, MACVerifier> verifiers = new ConcurrentHashMap<>();
+
     public String generateToken(
             User user,
             int expireDay,
@@ -33,15 +40,19 @@ public class AuthUtil {
         JWTClaimsSet claimsSet = new  JWTClaimsSet.Builder()
                 .subject(user.getEmail())
                 .issuer("dev.com")
+                //jti ngẫu nhiên: 2 token cấp trong cùng 1 giây cho cùng user không trùng nhau (digest refresh token là unique)
+                .jwtID(UUID.randomUUID().toString())
                 .issueTime(new Date())
                 .expirationTime(expirationTimeVar)
                 .claim("scope",user.getRole().toString())
+                //id user trong token: IdentityCache không phải tra DB cho ROLE_USER
+                .claim("uid",user.getId())
                 .build();
         Payload payload = new Payload(claimsSet.toJSONObject());
         JWSObject jwsObject = new JWSObject(jwtHeader, payload);
 
         try {
-            jwsObject.sign(new MACSigner(secretKey));
+            jwsObject.sign(signer(secretKey));
             return jwsObject.serialize();
         }catch (Exception e) {
             throw new RuntimeException(e);
@@ -49,10 +60,9 @@ public class AuthUtil {
 
     }
     public SignedJWT verifyToken(String token,String secretKey) throws ParseException, JOSEException {
-        var verifier = new MACVerifier(secretKey.getBytes());
         SignedJWT signedJWT = SignedJWT.parse(token);
 
-        var verify = signedJWT.verify(verifier);
+        var verify = signedJWT.verify(verifier(secretKey));
 
         var expireTime = signedJWT.getJWTClaimsSet().getExpirationTime();
         if(!verify) {
@@ -64,4 +74,24 @@ public class AuthUtil {
         return signedJWT;
 
     }
+
+    private MACSigner signer(String secretKey) {
+        return signers.computeIfAbsent(secretKey, key -> {
+            try {
+                return new MACSigner(key);
+            } catch (KeyLengthException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private MACVerifier verifier(String secretKey) {
+        return verifiers.computeIfAbsent(secretKey, key -> {
+            try {
+                return new MACVerifier(key.getBytes());
+            } catch (JOSEException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
 }
@@ -0,0 +1,32 @@
+package com.dev.utils;
+
+import com.dev.enums.ErrorEnum;
+import com.dev.exception.AppException;
+
+import java.util.Date;
+
+//keyset cursor "<createdAt millis>_<id>" for paging by (createdAt DESC, id DESC)
+public class CursorUtil {
+
+    public record Cursor(Date createdAt, Long id) {
+    }
+
+    public static String encode(Date createdAt, Long id) {
+        return createdAt.getTime() + "_" + id;
+    }
+
+    public static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String[] parts = cursor.split("_");
+        if (parts.length != 2) {
+            throw new AppException(ErrorEnum.ORDER_CURSOR_INVALID);
+        }
+        try {
+            return new Cursor(new Date(Long.parseLong(parts[0])), Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new AppException(ErrorEnum.ORDER_CURSOR_INVALID);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.dev.cache;
+
+import com.dev.enums.ErrorEnum;
+import com.dev.exception.AppException;
+import com.dev.models.Cart;
+import com.dev.repository.CartRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+//mỗi update khóa row cart rồi ghi lại ngay, chỉ ghi khi cart thật sự đổi
+class DatabaseCartStoreTest {
+
+    CartRepository cartRepository;
+    CartPersister cartPersister;
+    DatabaseCartStore store;
+
+    @BeforeEach
+    void setUp() {
+        cartRepository = mock(CartRepository.class);
+        cartPersister = mock(CartPersister.class);
+        when(cartRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(new Cart()));
+        when(cartPersister.load(1L)).thenAnswer(invocation -> new LiveCart(1L, 4, List.of()));
+        store = new DatabaseCartStore(cartRepository, cartPersister,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    }
+
+    @Test
+    void changedCartIsWrittenOnTopOfTheLoadedVersion() {
+        store.update(1L, cart -> cart.addLine(10L, 1L, 1, 10_000, null, Set.of(), null, List.of()));
+
+        verify(cartRepository).findByIdForUpdate(1L);
+        verify(cartPersister).saveAll(argThat(snapshots -> snapshots.size() == 1
+                && snapshots.iterator().next().storedVersion() == 4
+                && snapshots.iterator().next().lines().size() == 1));
+    }
+
+    @Test
+    void unchangedCartIsNotWritten() {
+        store.update(1L, LiveCart::isEmpty);
+
+        verify(cartPersister, never()).saveAll(any());
+    }
+
+    @Test
+    void missingCartIsRejectedBeforeLoading() {
+        assertThatThrownBy(() -> store.update(2L, LiveCart::isEmpty))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getError())
+                .isEqualTo(ErrorEnum.CART_NOT_FOUND);
+        verify(cartPersister, never()).load(any());
+    }
+}
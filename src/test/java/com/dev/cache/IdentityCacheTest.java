@@ -0,0 +1,69 @@
+package com.dev.cache;
+
+import com.dev.config.PrimaryReads;
+import com.dev.enums.ErrorEnum;
+import com.dev.enums.RoleEnum;
+import com.dev.exception.AppException;
+import com.dev.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+//owner vừa tạo restaurant phải thấy restaurantId ngay, không chờ hết TTL
+class IdentityCacheTest {
+
+    static final String OWNER = "owner@example.com";
+
+    UserRepository userRepository;
+    IdentityCache identityCache;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        PrimaryReads primaryReads = mock(PrimaryReads.class);
+        when(primaryReads.get(any())).thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
+        identityCache = new IdentityCache(userRepository, primaryReads, new SimpleMeterRegistry(), 100, 60);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(OWNER, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void createdRestaurantEvictsOwnerWithoutRestaurant() {
+        when(userRepository.findIdentityRows(OWNER)).thenReturn(List.<Object[]>of(new Object[]{1L, RoleEnum.ROLE_RESTAURANT, null}));
+        assertThatThrownBy(identityCache::currentRestaurantId)
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getError())
+                .isEqualTo(ErrorEnum.RES_NOT_FOUND);
+
+        when(userRepository.findIdentityRows(OWNER)).thenReturn(List.<Object[]>of(new Object[]{1L, RoleEnum.ROLE_RESTAURANT, 7L}));
+        identityCache.onRestaurantChanged(new RestaurantChangedEvent(7L, OWNER));
+
+        assertThat(identityCache.currentRestaurantId()).isEqualTo(7L);
+    }
+
+    @Test
+    void changedRestaurantEvictsByRestaurantId() {
+        when(userRepository.findIdentityRows(OWNER)).thenReturn(List.<Object[]>of(new Object[]{1L, RoleEnum.ROLE_RESTAURANT, 7L}));
+        identityCache.currentRestaurantId();
+
+        identityCache.onRestaurantChanged(new RestaurantChangedEvent(7L));
+        identityCache.currentRestaurantId();
+
+        verify(userRepository, times(2)).findIdentityRows(OWNER);
+    }
+}
@@ -0,0 +1,155 @@
+package com.dev.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+//cart 2 không ghi được (vd ingredient đã bị xóa), cart 1 và 3 phải vẫn được ghi
+class InMemoryCartStoreTest {
+
+    static final Long BROKEN = 2L;
+
+    CartPersister cartPersister;
+    InMemoryCartStore store;
+    List<Long> saved;
+
+    @BeforeEach
+    void setUp() {
+        cartPersister = mock(CartPersister.class);
+        when(cartPersister.load(anyLong())).thenAnswer(invocation -> new LiveCart(invocation.getArgument(0), 0, List.of()));
+        saved = new ArrayList<>();
+        doAnswer(invocation -> {
+            Collection<LiveCart.Snapshot> snapshots = invocation.getArgument(0);
+            if(snapshots.stream().anyMatch(snapshot -> snapshot.cartId().equals(BROKEN))) {
+                throw new IllegalStateException("FK violation");
+            }
+            snapshots.forEach(snapshot -> saved.add(snapshot.cartId()));
+            return null;
+        }).when(cartPersister).saveAll(any());
+        store = new InMemoryCartStore(cartPersister, 100, 30, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void failingCartDoesNotBlockTheRestOfTheBatch() {
+        addLine(1L);
+        addLine(BROKEN);
+        addLine(3L);
+
+        store.flush();
+        assertThat(saved).containsExactlyInAnyOrder(1L, 3L);
+
+        saved.clear();
+        store.flush();
+        //chỉ còn cart lỗi được ghi lại
+        assertThat(saved).isEmpty();
+        verify(cartPersister, times(2)).saveAll(List.of(snapshotOf(BROKEN)));
+    }
+
+    @Test
+    void cartFailingRepeatedlyIsDroppedFromMemory() {
+        addLine(BROKEN);
+        store.flush();
+        store.flush();
+        store.flush();
+        store.flush();
+
+        //lỗi 3 lần thì bị bỏ, lần flush thứ 4 không ghi nữa
+        verify(cartPersister, times(3)).saveAll(any());
+        //bị bỏ khỏi bộ nhớ: lần đọc sau load lại từ DB
+        assertThat(store.read(BROKEN, LiveCart::isEmpty)).isTrue();
+        verify(cartPersister, times(2)).load(BROKEN);
+    }
+
+    @Test
+    void successfulWriteResetsFailureCount() {
+        addLine(BROKEN);
+        store.flush();
+        store.flush();
+
+        doNothing().when(cartPersister).saveAll(any());
+        store.flush();
+        assertThat(store.read(BROKEN, LiveCart::isEmpty)).isFalse();
+        verify(cartPersister, times(1)).load(BROKEN);
+    }
+
+    @Test
+    void successfulWriteMovesStoredVersionForward() {
+        addLine(1L);
+        store.flush();
+        addLine(1L);
+
+        assertThat(snapshotOf(1L).storedVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void cartChangedElsewhereIsDroppedWithoutRetry() {
+        doThrow(new OptimisticLockingFailureException("stale")).when(cartPersister).saveAll(any());
+        addLine(1L);
+        store.flush();
+        store.flush();
+
+        //không ghi lại bản cũ, lần đọc sau lấy bản trong DB
+        verify(cartPersister, times(1)).saveAll(any());
+        assertThat(store.read(1L, LiveCart::isEmpty)).isTrue();
+        verify(cartPersister, times(2)).load(1L);
+    }
+
+    @Test
+    void secondCheckoutDoesNotClaimTheSameLines() {
+        addLine(1L);
+        addLine(1L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        assertThat(store.claimLines(1L)).hasSize(2);
+        assertThat(store.claimLines(1L)).isEmpty();
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(store.read(1L, LiveCart::isEmpty)).isTrue();
+    }
+
+    @Test
+    void claimedLinesComeBackWhenCheckoutRollsBack() {
+        addLine(1L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        store.claimLines(1L);
+        addLine(1L);
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(store.read(1L, LiveCart::getLines)).hasSize(2);
+    }
+
+    private void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    private void addLine(Long cartId) {
+        store.update(cartId, cart -> cart.addLine(10L, 1L, 1, 10_000, null, Set.of(), null, List.of()));
+    }
+
+    private LiveCart.Snapshot snapshotOf(Long cartId) {
+        return store.read(cartId, LiveCart::snapshot);
+    }
+}
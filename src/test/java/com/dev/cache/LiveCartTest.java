@@ -0,0 +1,117 @@
+package com.dev.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveCartTest {
+
+    @Test
+    void lineIdsContinueAfterPersistedLines() {
+        LiveCart cart = new LiveCart(1L, 0, List.of(line(3L, 10L, 2, 40_000), line(7L, 11L, 1, 15_000)));
+
+        assertThat(cart.getTotalPrice()).isEqualTo(55_000);
+        assertThat(add(cart, 12L, 1, 10_000, Set.of()).id()).isEqualTo(8L);
+        assertThat(cart.getTotalPrice()).isEqualTo(65_000);
+    }
+
+    @Test
+    void removedLineIdIsNotReused() {
+        LiveCart cart = new LiveCart(1L, 0, List.of());
+        add(cart, 10L, 1, 10_000, Set.of());
+        LiveCart.Line second = add(cart, 11L, 1, 10_000, Set.of());
+
+        assertThat(cart.removeLine(second.id())).isTrue();
+        assertThat(cart.removeLine(second.id())).isFalse();
+        assertThat(add(cart, 12L, 1, 10_000, Set.of()).id()).isEqualTo(3L);
+    }
+
+    @Test
+    void setQuantityKeepsUnitPriceAndUpdatesTotal() {
+        LiveCart cart = new LiveCart(1L, 0, List.of());
+        LiveCart.Line line = add(cart, 10L, 2, 50_000, Set.of());
+
+        LiveCart.Line updated = cart.setQuantity(line.id(), 5);
+
+        assertThat(updated.totalPrice()).isEqualTo(125_000);
+        assertThat(cart.getTotalPrice()).isEqualTo(125_000);
+        assertThat(cart.setQuantity(99L, 1)).isNull();
+    }
+
+    @Test
+    void matchingLineComparesFoodInstructionsAndIngredientsByValue() {
+        LiveCart cart = new LiveCart(1L, 0, List.of());
+        //id ngoài khoảng cache của Long.valueOf để so sánh == sẽ sai
+        LiveCart.Line line = add(cart, 10L, 1, 10_000, Set.of(1000L, 2000L));
+
+        assertThat(cart.findMatchingLine(10L, null, Set.of(Long.valueOf(2000), Long.valueOf(1000)))).contains(line);
+        assertThat(cart.findMatchingLine(10L, null, Set.of(1000L))).isEmpty();
+        assertThat(cart.findMatchingLine(10L, "ít đá", Set.of(1000L, 2000L))).isEmpty();
+        assertThat(cart.findMatchingLine(11L, null, Set.of(1000L, 2000L))).isEmpty();
+    }
+
+    @Test
+    void versionChangesOnlyWhenCartChanges() {
+        LiveCart cart = new LiveCart(1L, 0, List.of());
+        long initial = cart.getVersion();
+
+        cart.clear();
+        cart.removeLines(List.of(5L));
+        assertThat(cart.getVersion()).isEqualTo(initial);
+
+        add(cart, 10L, 1, 10_000, Set.of());
+        cart.clear();
+        assertThat(cart.getVersion()).isEqualTo(initial + 2);
+        assertThat(cart.isEmpty()).isTrue();
+        assertThat(cart.getTotalPrice()).isZero();
+    }
+
+    @Test
+    void snapshotIsNotAffectedByLaterChanges() {
+        LiveCart cart = new LiveCart(1L, 0, List.of());
+        add(cart, 10L, 1, 10_000, Set.of());
+        LiveCart.Snapshot snapshot = cart.snapshot();
+
+        add(cart, 11L, 1, 20_000, Set.of());
+
+        assertThat(snapshot.lines()).hasSize(1);
+        assertThat(snapshot.totalPrice()).isEqualTo(10_000);
+    }
+
+    private static LiveCart.Line add(LiveCart cart, Long foodId, int quantity, long totalPrice, Set<Long> ingredientIds) {
+        return cart.addLine(foodId, 1L, quantity, totalPrice, null, ingredientIds, null, List.of());
+    }
+
+    @Test
+    void restoreLinesKeepsLinesAddedMeanwhile() {
+        LiveCart cart = new LiveCart(1L, 0, List.of(line(1L, 10L, 2, 40_000), line(2L, 11L, 1, 15_000)));
+        List<LiveCart.Line> claimed = List.copyOf(cart.getLines());
+        cart.clear();
+        LiveCart.Line added = add(cart, 12L, 1, 5_000, Set.of());
+
+        cart.restoreLines(claimed);
+
+        assertThat(cart.getLines()).extracting(LiveCart.Line::foodId).containsExactly(10L, 11L, 12L);
+        assertThat(cart.getTotalPrice()).isEqualTo(60_000);
+        assertThat(cart.findLine(added.id())).isPresent();
+    }
+
+    @Test
+    void restoreLinesGivesNewIdOnClash() {
+        //cart load lại từ DB sau khi claim: dòng mới có thể trùng id với dòng được trả lại
+        LiveCart cart = new LiveCart(1L, 0, List.of());
+        LiveCart.Line added = add(cart, 12L, 1, 5_000, Set.of());
+
+        cart.restoreLines(List.of(line(added.id(), 10L, 1, 20_000)));
+
+        assertThat(cart.getLines()).hasSize(2);
+        assertThat(cart.getLines()).extracting(LiveCart.Line::id).doesNotHaveDuplicates();
+    }
+
+    private static LiveCart.Line line(Long id, Long foodId, int quantity, long totalPrice) {
+        return new LiveCart.Line(id, foodId, 1L, quantity, totalPrice, null, Set.of(), null, List.of());
+    }
+}
@@ -0,0 +1,154 @@
+package com.dev.cache;
+
+import com.dev.config.PrimaryReads;
+import com.dev.dto.response.OrderEvent;
+import com.dev.enums.OrderStatus;
+import com.dev.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+//smoothing 0.5, mặc định nhận đơn 3 phút, chuẩn bị 15 phút
+class PrepTimeCacheTest {
+
+    static final Long RESTAURANT_ID = 1L;
+    static final long T0 = 1_700_000_000_000L;
+
+    OrderRepository orderRepository;
+    PrepTimeCache cache;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        when(orderRepository.findRecentPrepTimes(anyLong(), any())).thenReturn(List.of());
+        cache = new PrepTimeCache(orderRepository, new PrimaryReads(mock(PlatformTransactionManager.class)),
+                new SimpleMeterRegistry(), 100, 30, 50, 0.5, 3, 15);
+    }
+
+    @Test
+    void restaurantWithoutHistoryUsesDefaults() {
+        when(orderRepository.countByRestaurantIdAndOrderStatusIn(eq(RESTAURANT_ID), any())).thenReturn(4L);
+
+        PrepTimeCache.Snapshot stats = cache.get(RESTAURANT_ID);
+
+        assertThat(stats.acceptMeanSeconds()).isEqualTo(180);
+        assertThat(stats.prepMeanSeconds()).isEqualTo(900);
+        assertThat(stats.acceptStdSeconds()).isZero();
+        assertThat(stats.samples()).isZero();
+        assertThat(stats.queueDepth()).isEqualTo(4);
+    }
+
+    @Test
+    void historyIsFoldedOldestFirst() {
+        //mới nhất trước như query: nhận 60s/chuẩn bị 600s, sau đó order cũ hơn nhận 120s/chuẩn bị 1200s
+        history(row(60, 600), row(120, 1200));
+
+        PrepTimeCache.Snapshot stats = cache.get(RESTAURANT_ID);
+
+        //180 -> 150 (mẫu 120) -> 105 (mẫu 60)
+        assertThat(stats.acceptMeanSeconds()).isCloseTo(105, within(1e-9));
+        //900 -> 1050 (mẫu 1200) -> 825 (mẫu 600)
+        assertThat(stats.prepMeanSeconds()).isCloseTo(825, within(1e-9));
+        //var: 0.5 * (0 + 0.5 * 60²) = 900 -> 0.5 * (900 + 0.5 * 90²) = 2475
+        assertThat(stats.acceptStdSeconds()).isCloseTo(Math.sqrt(2475), within(1e-9));
+        assertThat(stats.samples()).isEqualTo(2);
+    }
+
+    @Test
+    void missingTimestampsAndOutliersAreIgnored() {
+        history(
+                new Object[]{new Date(T0), null, null},
+                row(60, 5 * 3600),
+                row(5 * 3600, 300));
+
+        PrepTimeCache.Snapshot stats = cache.get(RESTAURANT_ID);
+
+        //chỉ còn nhận 60s và chuẩn bị 300s
+        assertThat(stats.acceptMeanSeconds()).isCloseTo(120, within(1e-9));
+        assertThat(stats.prepMeanSeconds()).isCloseTo(600, within(1e-9));
+        assertThat(stats.samples()).isEqualTo(1);
+    }
+
+    @Test
+    void orderEventsUpdateLoadedEntry() {
+        when(orderRepository.countByRestaurantIdAndOrderStatusIn(eq(RESTAURANT_ID), any())).thenReturn(1L);
+        cache.get(RESTAURANT_ID);
+
+        cache.onOrderEvent(created());
+        cache.onOrderEvent(statusChanged(OrderStatus.CONFIRMED, 60));
+        assertThat(cache.get(RESTAURANT_ID).queueDepth()).isEqualTo(2);
+        assertThat(cache.get(RESTAURANT_ID).acceptMeanSeconds()).isCloseTo(120, within(1e-9));
+
+        cache.onOrderEvent(statusChanged(OrderStatus.SHIPPING, 300));
+        PrepTimeCache.Snapshot stats = cache.get(RESTAURANT_ID);
+        assertThat(stats.queueDepth()).isEqualTo(1);
+        assertThat(stats.prepMeanSeconds()).isCloseTo(600, within(1e-9));
+        assertThat(stats.samples()).isEqualTo(1);
+    }
+
+    @Test
+    void queueDepthNeverGoesNegative() {
+        cache.get(RESTAURANT_ID);
+
+        cache.onOrderEvent(statusChanged(OrderStatus.CANCELLED, 0));
+        cache.onOrderEvent(statusChanged(OrderStatus.CANCELLED, 0));
+
+        assertThat(cache.get(RESTAURANT_ID).queueDepth()).isZero();
+    }
+
+    @Test
+    void eventForRestaurantNotInCacheDoesNotLoadIt() {
+        cache.onOrderEvent(created());
+
+        verifyNoInteractions(orderRepository);
+    }
+
+    private void history(Object[]... rows) {
+        when(orderRepository.findRecentPrepTimes(eq(RESTAURANT_ID), any())).thenReturn(new ArrayList<>(List.of(rows)));
+    }
+
+    //[createdAt, confirmedAt, shippedAt]
+    private static Object[] row(long acceptSeconds, long prepSeconds) {
+        return new Object[]{
+                new Date(T0),
+                new Date(T0 + acceptSeconds * 1000),
+                new Date(T0 + (acceptSeconds + prepSeconds) * 1000)};
+    }
+
+    private static OrderEvent created() {
+        return OrderEvent.builder()
+                .type(OrderEvent.CREATED)
+                .restaurantId(RESTAURANT_ID)
+                .orderStatus(OrderStatus.PENDING)
+                .createdAt(new Date(T0))
+                .build();
+    }
+
+    //CONFIRMED: at = createdAt + seconds, SHIPPING: at = confirmedAt + seconds
+    private static OrderEvent statusChanged(OrderStatus status, long seconds) {
+        Date confirmedAt = new Date(T0 + 60_000);
+        Date at = status == OrderStatus.SHIPPING
+                ? new Date(confirmedAt.getTime() + seconds * 1000)
+                : new Date(T0 + seconds * 1000);
+        return OrderEvent.builder()
+                .type(OrderEvent.STATUS_CHANGED)
+                .restaurantId(RESTAURANT_ID)
+                .orderStatus(status)
+                .createdAt(new Date(T0))
+                .confirmedAt(confirmedAt)
+                .at(at)
+                .build();
+    }
+}
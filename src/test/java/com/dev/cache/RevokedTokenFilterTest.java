@@ -0,0 +1,82 @@
+package com.dev.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevokedTokenFilterTest {
+
+    @Test
+    void revokedDigestIsAlwaysFound() {
+        RevokedTokenFilter filter = new RevokedTokenFilter(1000, 0.0001);
+        for (int i = 0; i < 1000; i++) {
+            filter.put(digest("revoked-" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertThat(filter.mightContain(digest("revoked-" + i))).isTrue();
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearConfiguredFpp() {
+        RevokedTokenFilter filter = new RevokedTokenFilter(10_000, 0.001);
+        for (int i = 0; i < 9_000; i++) {
+            filter.put(digest("revoked-" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if(filter.mightContain(digest("valid-" + i))) {
+                falsePositives++;
+            }
+        }
+        //fpp 0.001 -> ~100, chừa rộng để test không flaky
+        assertThat(falsePositives).isLessThan(500);
+    }
+
+    @Test
+    void previousGenerationIsKeptAfterOneRotation() {
+        RevokedTokenFilter filter = new RevokedTokenFilter(100, 0.0001);
+        for (int i = 0; i < 100; i++) {
+            filter.put(digest("first-" + i));
+        }
+        //thế hệ đầu đầy -> thành previous, vẫn còn được kiểm tra
+        filter.put(digest("second-0"));
+
+        assertThat(filter.mightContain(digest("first-0"))).isTrue();
+        assertThat(filter.mightContain(digest("second-0"))).isTrue();
+    }
+
+    @Test
+    void generationOlderThanPreviousIsDropped() {
+        RevokedTokenFilter filter = new RevokedTokenFilter(100, 0.0001);
+        for (int i = 0; i < 100; i++) {
+            filter.put(digest("first-" + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            filter.put(digest("second-" + i));
+        }
+
+        int stillFound = 0;
+        for (int i = 0; i < 100; i++) {
+            if(filter.mightContain(digest("first-" + i))) {
+                stillFound++;
+            }
+        }
+        //không còn thế hệ nào chứa first-*, chỉ còn false positive
+        assertThat(stillFound).isLessThan(5);
+        assertThat(filter.mightContain(digest("second-99"))).isTrue();
+    }
+
+    private static String digest(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.dev.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//2 DB H2 in-memory đóng vai primary/replica, mỗi DB có bảng db_name ghi tên của nó để biết câu SELECT chạy ở đâu
+class ReplicaRoutingDataSourceTest {
+
+    DataSource primary;
+    FlakyDataSource replica;
+    SimpleMeterRegistry meterRegistry;
+    ReplicaLagMonitor lagMonitor;
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate readWrite;
+    TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = new FlakyDataSource(database("replica"));
+        meterRegistry = new SimpleMeterRegistry();
+        lagMonitor = new ReplicaLagMonitor(primary, replica, 5000, meterRegistry);
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, replica, lagMonitor, meterRegistry));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @Test
+    void readOnlyTransactionUsesReplicaWhenInSync() {
+        replicateHeartbeat(System.currentTimeMillis());
+        lagMonitor.check();
+
+        assertThat(lagMonitor.isReplicaAvailable()).isTrue();
+        assertThat(readOnlyDatabase()).isEqualTo("replica");
+        assertThat(connections("replica")).isEqualTo(1);
+    }
+
+    @Test
+    void writesAndNonTransactionalQueriesUsePrimary() {
+        replicateHeartbeat(System.currentTimeMillis());
+        lagMonitor.check();
+
+        assertThat(readWriteDatabase()).isEqualTo("primary");
+        assertThat(currentDatabase()).isEqualTo("primary");
+        assertThat(connections("replica")).isZero();
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() {
+        replicateHeartbeat(System.currentTimeMillis() - 60_000);
+        lagMonitor.check();
+
+        assertThat(lagMonitor.isReplicaAvailable()).isFalse();
+        assertThat(lagMonitor.getLagMs()).isGreaterThanOrEqualTo(60_000);
+        assertThat(readOnlyDatabase()).isEqualTo("primary");
+        assertThat(meterRegistry.counter("datasource.replica.fallback", "reason", "lag").count()).isEqualTo(1);
+    }
+
+    @Test
+    void replicaWithoutHeartbeatIsNotUsed() {
+        lagMonitor.check();
+
+        assertThat(lagMonitor.isReplicaAvailable()).isFalse();
+        assertThat(readOnlyDatabase()).isEqualTo("primary");
+    }
+
+    @Test
+    void replicaConnectionFailureFallsBackToPrimaryUntilNextCheck() {
+        replicateHeartbeat(System.currentTimeMillis());
+        lagMonitor.check();
+        replica.down = true;
+
+        assertThat(readOnlyDatabase()).isEqualTo("primary");
+        assertThat(lagMonitor.isReplicaAvailable()).isFalse();
+        assertThat(meterRegistry.counter("datasource.replica.fallback", "reason", "error").count()).isEqualTo(1);
+
+        replica.down = false;
+        replicateHeartbeat(System.currentTimeMillis());
+        lagMonitor.check();
+        assertThat(readOnlyDatabase()).isEqualTo("replica");
+    }
+
+    @Test
+    void checkWritesHeartbeatOnPrimary() {
+        long before = System.currentTimeMillis();
+        lagMonitor.check();
+
+        Long beatAt = new JdbcTemplate(primary).queryForObject(
+                "SELECT beat_at FROM " + ReplicaLagMonitor.HEARTBEAT_TABLE + " WHERE id = 1", Long.class);
+        assertThat(beatAt).isGreaterThanOrEqualTo(before);
+    }
+
+    private String readOnlyDatabase() {
+        return readOnly.execute(status -> currentDatabase());
+    }
+
+    private String readWriteDatabase() {
+        return readWrite.execute(status -> currentDatabase());
+    }
+
+    private String currentDatabase() {
+        return jdbcTemplate.queryForObject("SELECT name FROM db_name", String.class);
+    }
+
+    private double connections(String target) {
+        return meterRegistry.counter("datasource.routing.connections", "target", target).count();
+    }
+
+    //giả lập replication: ghi heartbeat thẳng vào replica
+    private void replicateHeartbeat(long beatAt) {
+        JdbcTemplate replicaJdbc = new JdbcTemplate(replica);
+        replicaJdbc.execute("CREATE TABLE IF NOT EXISTS " + ReplicaLagMonitor.HEARTBEAT_TABLE + " (id INT NOT NULL PRIMARY KEY, beat_at BIGINT NOT NULL)");
+        replicaJdbc.update("MERGE INTO " + ReplicaLagMonitor.HEARTBEAT_TABLE + " (id, beat_at) KEY (id) VALUES (1, ?)", beatAt);
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE db_name (name VARCHAR(20))");
+        jdbc.update("INSERT INTO db_name VALUES (?)", name);
+        return dataSource;
+    }
+
+    //replica có thể bật/tắt để giả lập mất kết nối
+    static class FlakyDataSource extends DelegatingDataSource {
+        volatile boolean down;
+
+        FlakyDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if(down) {
+                throw new SQLException("replica is down");
+            }
+            return super.getConnection();
+        }
+    }
+}
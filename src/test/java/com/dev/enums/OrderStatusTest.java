@@ -0,0 +1,69 @@
+package com.dev.enums;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//bảng chuyển trạng thái mà OrderTransitionEngine dùng để chặn nhảy cóc/chuyển lùi
+class OrderStatusTest {
+
+    @Test
+    void happyPathMovesOneStepAtATime() {
+        assertThat(allowed(OrderStatus.PENDING, OrderStatus.CONFIRMED)).isTrue();
+        assertThat(allowed(OrderStatus.CONFIRMED, OrderStatus.SHIPPING)).isTrue();
+        assertThat(allowed(OrderStatus.SHIPPING, OrderStatus.DELIVERED)).isTrue();
+    }
+
+    @Test
+    void skippingAStepIsRejected() {
+        assertThat(allowed(OrderStatus.PENDING, OrderStatus.SHIPPING)).isFalse();
+        assertThat(allowed(OrderStatus.PENDING, OrderStatus.DELIVERED)).isFalse();
+        assertThat(allowed(OrderStatus.CONFIRMED, OrderStatus.DELIVERED)).isFalse();
+    }
+
+    @Test
+    void movingBackwardsIsRejected() {
+        assertThat(allowed(OrderStatus.CONFIRMED, OrderStatus.PENDING)).isFalse();
+        assertThat(allowed(OrderStatus.SHIPPING, OrderStatus.CONFIRMED)).isFalse();
+        assertThat(allowed(OrderStatus.DELIVERED, OrderStatus.SHIPPING)).isFalse();
+    }
+
+    @Test
+    void cancelOnlyBeforeShipping() {
+        assertThat(OrderStatus.CANCELLED.allowedFrom()).containsExactlyInAnyOrder(OrderStatus.PENDING, OrderStatus.CONFIRMED);
+        assertThat(allowed(OrderStatus.SHIPPING, OrderStatus.CANCELLED)).isFalse();
+        assertThat(allowed(OrderStatus.DELIVERED, OrderStatus.CANCELLED)).isFalse();
+    }
+
+    @Test
+    void terminalStatesAreFinal() {
+        for (OrderStatus target : OrderStatus.values()) {
+            assertThat(allowed(OrderStatus.DELIVERED, target)).isFalse();
+            assertThat(allowed(OrderStatus.CANCELLED, target)).isFalse();
+        }
+    }
+
+    @Test
+    void nothingMovesBackToPendingOrToItself() {
+        assertThat(OrderStatus.PENDING.allowedFrom()).isEmpty();
+        for (OrderStatus status : OrderStatus.values()) {
+            assertThat(allowed(status, status)).isFalse();
+        }
+    }
+
+    @Test
+    void fromValueRoundTrips() {
+        Set<OrderStatus> seen = EnumSet.noneOf(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            seen.add(OrderStatus.fromValue(status.getValue()));
+        }
+        assertThat(seen).containsExactlyInAnyOrder(OrderStatus.values());
+    }
+
+    private static boolean allowed(OrderStatus from, OrderStatus to) {
+        return to.allowedFrom().contains(from);
+    }
+}
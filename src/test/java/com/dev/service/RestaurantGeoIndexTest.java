@@ -0,0 +1,126 @@
+package com.dev.service;
+
+import com.dev.repository.RestaurantRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+//10 nhà hàng trên cùng 1 kinh tuyến, nhà hàng i cách tâm ~i km về phía bắc
+class RestaurantGeoIndexTest {
+
+    static final double LAT = 10.7769;
+    static final double LON = 106.7009;
+    static final double KM_PER_DEGREE = 111.195;
+
+    RestaurantRepository restaurantRepository;
+    RestaurantGeoIndex index;
+
+    @BeforeEach
+    void setUp() {
+        restaurantRepository = mock(RestaurantRepository.class);
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            rows.add(row(id, id));
+        }
+        when(restaurantRepository.findGeoRows()).thenReturn(rows);
+        index = new RestaurantGeoIndex(restaurantRepository, 0.05, 20, 6);
+        index.rebuild();
+    }
+
+    @Test
+    void pagesAreNearestFirstAndDoNotOverlap() {
+        assertThat(ids(index.nearby(LAT, LON, 20, 0, 3))).containsExactly(1L, 2L, 3L);
+        assertThat(ids(index.nearby(LAT, LON, 20, 3, 3))).containsExactly(4L, 5L, 6L);
+    }
+
+    @Test
+    void totalCountsEveryMatchInRadius() {
+        RestaurantGeoIndex.Result result = index.nearby(LAT, LON, 4.5, 0, 2);
+
+        assertThat(result.totalElements()).isEqualTo(4);
+        assertThat(ids(result)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void resultsBeyondMaxResultsAreNotRanked() {
+        //max-results = 6: trang 3 (offset 6) rỗng nhưng tổng vẫn đúng
+        RestaurantGeoIndex.Result result = index.nearby(LAT, LON, 20, 6, 3);
+
+        assertThat(result.hits()).isEmpty();
+        assertThat(result.totalElements()).isEqualTo(10);
+        assertThat(ids(index.nearby(LAT, LON, 20, 4, 3))).containsExactly(5L, 6L);
+    }
+
+    @Test
+    void hugeOrNegativePagingDoesNotFail() {
+        assertThat(index.nearby(LAT, LON, 20, Long.MAX_VALUE, Integer.MAX_VALUE).hits()).isEmpty();
+        assertThat(index.nearby(LAT, LON, 20, (long) Integer.MAX_VALUE * 50, 50).hits()).isEmpty();
+        assertThat(ids(index.nearby(LAT, LON, 20, -5, 2))).containsExactly(1L, 2L);
+        assertThat(index.nearby(LAT, LON, 20, 0, -1).hits()).isEmpty();
+        assertThat(index.nearby(LAT, LON, 20, 0, 0).totalElements()).isEqualTo(10);
+    }
+
+    @Test
+    void radiusIsCappedAtMaxRadius() {
+        index.put(11L, LAT + 30 / KM_PER_DEGREE, LON);
+
+        assertThat(index.nearby(LAT, LON, 1000, 0, 6).totalElements()).isEqualTo(10);
+    }
+
+    @Test
+    void removedRestaurantDisappears() {
+        index.remove(1L);
+
+        assertThat(ids(index.nearby(LAT, LON, 20, 0, 2))).containsExactly(2L, 3L);
+        assertThat(index.size()).isEqualTo(9);
+    }
+
+    @Test
+    void refreshPicksUpChangesMadeOnOtherNodes() {
+        //node khác đóng cửa nhà hàng 1 và thêm nhà hàng 20 sát tâm
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 2; id <= 10; id++) {
+            rows.add(row(id, id));
+        }
+        rows.add(row(20L, 0.5));
+        when(restaurantRepository.findGeoRows()).thenReturn(rows);
+
+        index.refresh();
+
+        assertThat(ids(index.nearby(LAT, LON, 20, 0, 2))).containsExactly(20L, 2L);
+        assertThat(index.size()).isEqualTo(10);
+    }
+
+    @Test
+    void changesDuringRebuildAreNotOverwrittenByTheStaleRead() {
+        //event đóng nhà hàng 1 và mở nhà hàng 20 đến trong lúc rebuild đang đọc DB, rows trả về vẫn là bản cũ
+        List<Object[]> staleRows = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            staleRows.add(row(id, id));
+        }
+        when(restaurantRepository.findGeoRows()).thenAnswer(invocation -> {
+            index.remove(1L);
+            index.put(20L, LAT + 0.5 / KM_PER_DEGREE, LON);
+            return staleRows;
+        });
+
+        index.refresh();
+
+        assertThat(ids(index.nearby(LAT, LON, 20, 0, 2))).containsExactly(20L, 2L);
+        assertThat(index.size()).isEqualTo(10);
+    }
+
+    private static Object[] row(long id, double northKm) {
+        return new Object[]{id, LAT + northKm / KM_PER_DEGREE, LON};
+    }
+
+    private static List<Long> ids(RestaurantGeoIndex.Result result) {
+        return result.hits().stream().map(RestaurantGeoIndex.Hit::restaurantId).toList();
+    }
+}
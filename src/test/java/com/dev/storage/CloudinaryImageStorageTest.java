@@ -0,0 +1,63 @@
+package com.dev.storage;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.Uploader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CloudinaryImageStorageTest {
+
+    Uploader uploader;
+    ImageStorage storage;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Cloudinary cloudinary = mock(Cloudinary.class);
+        uploader = mock(Uploader.class);
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.uploadLarge(any(), anyMap(), anyInt()))
+                .thenReturn(Map.of("secure_url", "https://res.cloudinary.com/demo/image/upload/v1/restaurant_1/abc.jpg"));
+        storage = new CloudinaryImageStorage(cloudinary, 6_000_000);
+    }
+
+    @Test
+    void uploadStreamsFromTheStartWithoutSharedUploadId() throws Exception {
+        InputStream content = new ByteArrayInputStream(new byte[1024]);
+
+        String url = storage.upload(content, 1024, "restaurant_1", "menu.jpg");
+
+        assertThat(url).isEqualTo("https://res.cloudinary.com/demo/image/upload/v1/restaurant_1/abc.jpg");
+        verify(uploader).uploadLarge(same(content), eq(Map.of("folder", "restaurant_1")), eq(6_000_000));
+        //overload có offset/unique id: offset = size bỏ qua cả stream, id = tên file làm 2 upload cùng tên dùng chung session
+        verify(uploader, never()).uploadLarge(any(), anyMap(), anyInt(), anyLong(), any(), any());
+    }
+
+    @Test
+    void deleteUsesPublicIdFromUrl() throws Exception {
+        storage.delete("https://res.cloudinary.com/demo/image/upload/v123/restaurant_1/abc.jpg");
+
+        verify(uploader).destroy(eq("restaurant_1/abc"), anyMap());
+    }
+
+    @Test
+    void deleteIgnoresForeignUrl() throws Exception {
+        storage.delete("http://localhost:8080/images/restaurant_1/abc.jpg");
+
+        verifyNoInteractions(uploader);
+    }
+
+    @Test
+    void publicIdStripsVersionAndExtension() {
+        assertThat(CloudinaryImageStorage.publicId("https://res.cloudinary.com/demo/image/upload/v123/a/b.png")).isEqualTo("a/b");
+        assertThat(CloudinaryImageStorage.publicId("https://res.cloudinary.com/demo/image/upload/a.b/c")).isEqualTo("a.b/c");
+        assertThat(CloudinaryImageStorage.publicId("https://example.com/a.png")).isNull();
+    }
+}
@@ -0,0 +1,65 @@
+package com.dev.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalImageStorageTest {
+
+    static final String BASE_URL = "http://localhost:8080/images";
+
+    @TempDir
+    Path root;
+
+    ImageStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new LocalImageStorage(root.toString(), BASE_URL + "/");
+    }
+
+    @Test
+    void uploadWritesWholeStreamAndDeleteRemovesIt() throws Exception {
+        byte[] content = new byte[100_000];
+        content[content.length - 1] = 7;
+
+        String url = storage.upload(new ByteArrayInputStream(content), content.length, "restaurant_1", "Menu.JPG");
+
+        assertThat(url).startsWith(BASE_URL + "/restaurant_1/").endsWith(".jpg");
+        Path file = root.resolve(url.substring(BASE_URL.length() + 1));
+        assertThat(Files.readAllBytes(file)).isEqualTo(content);
+
+        storage.delete(url);
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void sameFilenameGetsDistinctUrls() throws Exception {
+        String first = storage.upload(new ByteArrayInputStream(new byte[]{1}), 1, "restaurant_1", "a.png");
+        String second = storage.upload(new ByteArrayInputStream(new byte[]{2}), 1, "restaurant_1", "a.png");
+
+        assertThat(first).isNotEqualTo(second);
+    }
+
+    @Test
+    void folderOutsideRootIsRejected() {
+        assertThatThrownBy(() -> storage.upload(new ByteArrayInputStream(new byte[]{1}), 1, "../escape", "a.png"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void deleteIgnoresForeignUrl() throws Exception {
+        Path outside = Files.writeString(root.resolve("keep.txt"), "x");
+
+        storage.delete("https://res.cloudinary.com/demo/image/upload/keep.txt");
+
+        assertThat(outside).exists();
+    }
+}